@@ -0,0 +1,198 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import pe.mrodas.jdbc.helper.ThrowingBiConsumer;
+import pe.mrodas.jdbc.helper.ThrowingFunction;
+
+/**
+ * Collects lookups by key issued from any thread within a short window and resolves them
+ * with one <code>IN (...)</code> query, in the style of DataLoader:
+ * <pre>
+ * {@code
+ * BatchLoader<Integer, User> users = new BatchLoader<>("SELECT * FROM user WHERE id IN (:ids)", "ids",
+ *         User::new, User::map, User::getId);
+ * CompletableFuture<User> user = users.load(5);
+ * }</pre>
+ * Keys repeated within a window are queried once. The batch is sent when the window
+ * (1ms by default) elapses or it reaches <code>maxBatchSize</code> keys. A key without a
+ * row completes with null. With {@link #setCache(boolean)} the futures are kept, so each key
+ * is queried at most once for the life of the loader (e.g. one loader per request).
+ * <br>
+ * Batches of all loaders run on one shared pool of daemon threads, sized to the processors,
+ * unless an executor is given with {@link #setExecutor(Executor)}.
+ *
+ * @author Marco Rodas
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    private final static ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-loader-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final static ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "batch-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final ThrowingFunction<List<K>, List<V>> fetcher;
+    private final Function<V, K> keyOf;
+    private Executor executor = EXECUTOR;
+    private Map<K, CompletableFuture<V>> batch = new LinkedHashMap<>();
+    private ConcurrentHashMap<K, CompletableFuture<V>> cache;
+    private int maxBatchSize = 100;
+    private long windowMicros = 1000;
+
+    /**
+     * @param query     Consulta con un parámetro de lista ej: "... WHERE id IN (:ids)"
+     * @param parameter Nombre del parámetro de lista ej: "ids"
+     * @param keyOf     Obtiene la llave de cada fila mapeada
+     */
+    public BatchLoader(String query, String parameter, Supplier<V> objGenerator, ThrowingBiConsumer<V, ResultSet> mapper, Function<V, K> keyOf) {
+        this(keys -> new SqlQuery<V>().setSql(query)
+                .addParameter(parameter, keys)
+                .executeForList(objGenerator, mapper), keyOf);
+    }
+
+    /**
+     * @param fetcher Obtiene las filas de un batch de llaves
+     */
+    BatchLoader(ThrowingFunction<List<K>, List<V>> fetcher, Function<V, K> keyOf) {
+        this.fetcher = fetcher;
+        this.keyOf = keyOf;
+    }
+
+    public BatchLoader<K, V> setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        return this;
+    }
+
+    /**
+     * @param micros Tiempo que se esperan otras llaves desde la primera del batch
+     */
+    public BatchLoader<K, V> setWindow(long micros) {
+        this.windowMicros = Math.max(0, micros);
+        return this;
+    }
+
+    /**
+     * @param executor Ejecutor de las consultas (por defecto un pool compartido)
+     */
+    public BatchLoader<K, V> setExecutor(Executor executor) {
+        this.executor = executor == null ? EXECUTOR : executor;
+        return this;
+    }
+
+    public BatchLoader<K, V> setCache(boolean cache) {
+        this.cache = cache ? new ConcurrentHashMap<>() : null;
+        return this;
+    }
+
+    public void clearCache() {
+        ConcurrentHashMap<K, CompletableFuture<V>> current = cache;
+        if (current != null) current.clear();
+    }
+
+    public CompletableFuture<V> load(K key) {
+        ConcurrentHashMap<K, CompletableFuture<V>> cache = this.cache;
+        if (cache != null) {
+            CompletableFuture<V> cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+        Map<K, CompletableFuture<V>> full = null;
+        CompletableFuture<V> future;
+        synchronized (this) {
+            // otro hilo pudo crearla después de la consulta al cache, y el batch ya haberse enviado
+            future = cache == null ? null : cache.get(key);
+            if (future != null) return future;
+            future = batch.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                batch.put(key, future);
+                if (cache != null) cache.put(key, future);
+                if (batch.size() >= maxBatchSize) {
+                    full = batch;
+                    batch = new LinkedHashMap<>();
+                } else if (batch.size() == 1)
+                    scheduler.schedule(this::dispatchPending, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (full != null) this.dispatch(full);
+        return future;
+    }
+
+    /**
+     * @return Futures en el mismo orden de las llaves
+     */
+    public List<CompletableFuture<V>> loadMany(List<K> keys) {
+        List<CompletableFuture<V>> futures = new ArrayList<>(keys.size());
+        for (K key : keys) futures.add(this.load(key));
+        return futures;
+    }
+
+    /**
+     * Envía las llaves pendientes sin esperar la ventana
+     */
+    public void dispatchPending() {
+        Map<K, CompletableFuture<V>> pending;
+        synchronized (this) {
+            if (batch.isEmpty()) return;
+            pending = batch;
+            batch = new LinkedHashMap<>();
+        }
+        this.dispatch(pending);
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> pending) {
+        try {
+            executor.execute(() -> this.execute(pending));
+        } catch (RuntimeException e) {
+            this.fail(pending, e);
+        }
+    }
+
+    private void execute(Map<K, CompletableFuture<V>> pending) {
+        try {
+            List<V> rows = fetcher.apply(new ArrayList<>(pending.keySet()));
+            Map<K, V> byKey = new HashMap<>();
+            for (V row : rows) byKey.putIfAbsent(keyOf.apply(row), row);
+            pending.forEach((key, future) -> future.complete(byKey.get(key)));
+        } catch (Exception e) {
+            this.fail(pending, e);
+        }
+    }
+
+    private void fail(Map<K, CompletableFuture<V>> pending, Exception e) {
+        ConcurrentHashMap<K, CompletableFuture<V>> cache = this.cache;
+        pending.forEach((key, future) -> {
+            if (cache != null) cache.remove(key, future);
+            future.completeExceptionally(e instanceof IOException || e instanceof SQLException ? e : new IOException(e.getMessage(), e));
+        });
+    }
+
+    /**
+     * Envía las llaves pendientes
+     */
+    @Override
+    public void close() {
+        this.dispatchPending();
+    }
+}
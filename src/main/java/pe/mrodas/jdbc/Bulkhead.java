@@ -0,0 +1,226 @@
+package pe.mrodas.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pe.mrodas.jdbc.helper.Deadline;
+
+/**
+ * Admission control for the connections of a {@link Connector}: at most <code>maxConcurrent</code>
+ * connections are in use at once, other threads wait in a fair queue of up to <code>maxQueue</code>
+ * threads for at most <code>maxWait</code>, and the rest fail immediately with
+ * {@link SQLTransientConnectionException} instead of piling up on a slow database.
+ * <pre>
+ * {@code
+ * Connector.getDefault()
+ *         .addBulkhead(new Bulkhead(Bulkhead.DEFAULT, 20, 50, 200))
+ *         .addBulkhead(new Bulkhead("reports", 4, 10, 5000));
+ * List<Row> rows = Bulkhead.workload("reports", () -> new SqlQuery<Row>()...executeForList(...));
+ * }</pre>
+ * A thread uses the bulkhead named as its current workload, or {@link #DEFAULT} if none
+ * matches. Each connection takes a permit that is released when it is closed.
+ * <br>
+ * Inside {@link #workload(String, Callable)} all the connections of the bulkhead share one
+ * permit, so a nested connection (e.g. a lookup while reading a cursor) can't block on the
+ * connection its own scope holds. The permit is released once the scope has returned and all
+ * its connections are closed, even if that happens later on another thread, so
+ * <code>maxConcurrent</code> limits the scopes and the connections opened outside of one.
+ *
+ * @author Marco Rodas
+ */
+public class Bulkhead {
+
+    public final static String DEFAULT = "default";
+    private final static ThreadLocal<String> WORKLOAD = new ThreadLocal<>();
+    private final static ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final String name;
+    private final int maxConcurrent, maxQueue;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+
+    /**
+     * @param name          Nombre del workload que usa este bulkhead
+     * @param maxConcurrent Máximo de conexiones en uso
+     * @param maxQueue      Máximo de hilos esperando una conexión
+     * @param maxWaitMillis Tiempo máximo de espera en la cola
+     */
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long maxWaitMillis) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("Max concurrent must be greater than 0!");
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Ejecuta el callable con el workload indicado, las conexiones que obtenga
+     * el hilo usarán el bulkhead con ese nombre y compartirán un solo permiso.
+     * Un workload anidado comparte el ámbito del primero.
+     */
+    public static <T> T workload(String workload, Callable<T> callable) throws Exception {
+        String previous = WORKLOAD.get();
+        Scope scope = SCOPE.get();
+        WORKLOAD.set(workload);
+        if (scope == null) SCOPE.set(new Scope());
+        try {
+            return callable.call();
+        } finally {
+            if (previous == null) WORKLOAD.remove();
+            else WORKLOAD.set(previous);
+            if (scope == null) {
+                SCOPE.get().end();
+                SCOPE.remove();
+            }
+        }
+    }
+
+    static String getWorkload() {
+        String workload = WORKLOAD.get();
+        return workload == null ? DEFAULT : workload;
+    }
+
+    /**
+     * Dentro de un {@link #workload(String, Callable)} reutiliza el permiso del ámbito
+     *
+     * @return Permiso que se libera al cerrarlo junto con las demás referencias
+     */
+    Permit acquire() throws SQLException {
+        Scope scope = SCOPE.get();
+        Permit shared = scope == null ? null : scope.permits.get(this);
+        if (shared != null) return shared.retain();
+        this.take();
+        Permit permit = new Permit(this);
+        if (scope != null) scope.permits.put(this, permit.retain());
+        return permit;
+    }
+
+    private void take() throws SQLException {
+        try {
+            // tryAcquire() sin tiempo se adelanta a los hilos en cola aunque el semáforo sea justo
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) return;
+            if (queued.incrementAndGet() > maxQueue) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new SQLTransientConnectionException(String.format("Bulkhead '%s' is saturated!", name));
+            }
+            try {
+                Long remaining = Deadline.remainingNanos();
+                long wait = remaining == null ? maxWaitNanos : Math.min(maxWaitNanos, Math.max(0, remaining));
+                if (!permits.tryAcquire(wait, TimeUnit.NANOSECONDS)) {
+                    timedOut.incrementAndGet();
+                    throw new SQLTransientConnectionException(String.format("Timed out waiting in bulkhead '%s'!", name));
+                }
+            } finally {
+                queued.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(String.format("Interrupted while waiting in bulkhead '%s'!", name), e);
+        }
+    }
+
+    /**
+     * @return Conexión que suelta su referencia al permiso al cerrarse (una sola vez), aunque se cierre en otro hilo
+     */
+    Connection wrap(Connection connection, Permit permit) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            boolean close = method.getName().equals("close") && method.getParameterCount() == 0;
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (close && closed.compareAndSet(false, true)) permit.close();
+            }
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return Permisos en uso: conexiones fuera de un workload y workloads con conexiones
+     */
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return Hilos esperando un permiso
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return Solicitudes rechazadas por cola llena
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return Solicitudes que superaron el tiempo máximo de espera
+     */
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * Permiso del semáforo compartido por referencias: el ámbito que lo creó y cada conexión
+     */
+    static class Permit implements AutoCloseable {
+        private final Bulkhead bulkhead;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Permit(Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        private Permit retain() {
+            references.incrementAndGet();
+            return this;
+        }
+
+        /**
+         * Suelta una referencia, la última devuelve el permiso al bulkhead
+         */
+        @Override
+        public void close() {
+            if (references.decrementAndGet() == 0) bulkhead.permits.release();
+        }
+    }
+
+    /**
+     * Permisos de un {@link #workload(String, Callable)}, solo los usa el hilo que lo ejecuta
+     */
+    private static class Scope {
+        private final Map<Bulkhead, Permit> permits = new IdentityHashMap<>();
+
+        private void end() {
+            permits.values().forEach(Permit::close);
+            permits.clear();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+import pe.mrodas.jdbc.helper.ThrowingBiConsumer;
+import pe.mrodas.jdbc.helper.ThrowingConsumer;
+
+/**
+ * Reads only the rows added or changed since the previous poll of a subscription, using a
+ * high-water mark on an increasing column (an auto-increment id, or <code>updated_at</code>
+ * plus the id to break ties):
+ * <pre>
+ * {@code
+ * ChangePoller<Order> poller = new ChangePoller<Order>("billing", "SELECT * FROM orders WHERE <keyset>", "updated_at", "id")
+ *         .setMapper(Order::new, Order::map)
+ *         .setStore(WatermarkStore.table("watermark", "name", "updated_at", "id"));
+ * poller.poll(orders -> billing.process(orders));
+ * }</pre>
+ * Each poll reads the rows after the mark with a {@link KeysetPager}, one page of
+ * <code>batchSize</code> rows per query, so the handler and the store run with no cursor open.
+ * The base query marks with <code>&lt;keyset&gt;</code> where the predicate of the mark goes, so
+ * each page reaches the index of the mark columns and costs as much as the changes it reads.
+ * The mark of the last row of a page is saved after the handler returns, so a failed handler
+ * gets the same rows again on the next poll (at-least-once). Rows with a NULL mark are never read.
+ * <br>
+ * A row committed later with a mark lower than one already read is missed, so with
+ * <code>updated_at</code> the column should be set by the database at commit, or the query
+ * should leave out the last seconds.
+ *
+ * @author Marco Rodas
+ */
+public class ChangePoller<T> {
+
+    private final HashMap<String, Object> parameters = new HashMap<>();
+    private final String subscription, baseQuery;
+    private final String[] markColumns;
+    private Supplier<T> objGenerator;
+    private ThrowingBiConsumer<T, ResultSet> mapper;
+    private WatermarkStore store = WatermarkStore.memory();
+    private int batchSize = 500;
+    private String error;
+
+    /**
+     * @param subscription Nombre con el que se guarda la marca
+     * @param baseQuery    Consulta con el marcador &lt;keyset&gt; en su WHERE
+     * @param markColumns  Columnas crecientes de la consulta base, la última debe ser única
+     */
+    public ChangePoller(String subscription, String baseQuery, String... markColumns) {
+        this.subscription = subscription;
+        this.baseQuery = baseQuery;
+        this.markColumns = markColumns;
+    }
+
+    public ChangePoller<T> setMapper(Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        this.objGenerator = objGenerator;
+        this.mapper = mapper;
+        return this;
+    }
+
+    /**
+     * Agrega un parámetro de la consulta base, definido con la sintaxis ":parameter"
+     */
+    public ChangePoller<T> addParameter(String name, Object value) {
+        if (error != null) return this;
+        if (name == null || name.trim().isEmpty())
+            error = "Parameter name can't be null or empty!";
+        else if (value == null)
+            error = String.format("Parameter '%s' value can't be null!", name);
+        else parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Por defecto las marcas se guardan en memoria
+     */
+    public ChangePoller<T> setStore(WatermarkStore store) {
+        this.store = store;
+        return this;
+    }
+
+    public ChangePoller<T> setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @return Marca guardada de la suscripción, o null si aún no se leyó ninguna fila
+     */
+    public Object[] getMark() throws IOException, SQLException {
+        this.validate();
+        return store.load(subscription);
+    }
+
+    private void validate() throws IOException {
+        if (error != null) throw new IOException(error);
+        if (subscription == null || subscription.trim().isEmpty())
+            throw new IOException("Subscription can't be null or empty!");
+        if (baseQuery == null || baseQuery.trim().isEmpty())
+            throw new IOException("Base query can't be null or empty!");
+        if (markColumns == null || markColumns.length == 0)
+            throw new IOException("Mark columns can't be null or empty!");
+        if (batchSize < 1) throw new IOException("Batch size must be greater than 0!");
+        if (mapper == null || objGenerator == null) throw new IOException("Mapper can't be null!");
+        if (store == null) throw new IOException("Store can't be null!");
+    }
+
+    /**
+     * Lee las filas posteriores a la marca por páginas de <code>batchSize</code> filas y las
+     * entrega, guardando la marca después de cada página
+     *
+     * @param handler Recibe cada batch, en el orden de las columnas de la marca
+     * @return Número de filas entregadas
+     */
+    public int poll(ThrowingConsumer<List<T>> handler) throws IOException, SQLException {
+        Object[] mark = this.getMark();
+        if (mark != null && mark.length != markColumns.length)
+            throw new IOException(String.format("Mark of '%s' must have %s values!", subscription, markColumns.length));
+        KeysetPager<T> pager = new KeysetPager<T>(baseQuery, batchSize, markColumns).setMapper(objGenerator, mapper);
+        parameters.forEach(pager::addParameter);
+        if (mark != null) pager.resumeFrom(mark);
+        int rows = 0;
+        try {
+            for (List<T> batch; (batch = pager.nextPage()) != null; rows += batch.size()) {
+                try {
+                    handler.accept(batch);
+                } catch (IOException | SQLException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+                store.save(subscription, pager.getLastKey());
+            }
+        } finally {
+            pager.close();
+        }
+        return rows;
+    }
+}
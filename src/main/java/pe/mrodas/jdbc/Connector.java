@@ -5,19 +5,61 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import javax.sql.DataSource;
+
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.Dialect;
 import pe.mrodas.jdbc.helper.ThrowingConsumer;
 import pe.mrodas.jdbc.helper.ThrowingFunction;
 
 public class Connector {
 
-    private static Config initConfig;
-    private static Connector connector;
+    private final static ConcurrentHashMap<String, Connector> connectors = new ConcurrentHashMap<>();
+    private final static int MAX_ACQUIRERS = 32;
+    private final static ExecutorService ACQUIRER = new ThreadPoolExecutor(0, MAX_ACQUIRERS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "connector-acquire");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile Config initConfig;
+    private static volatile DataSource initDataSource;
+    private static volatile Connector connector;
+    private static volatile GroupCommit groupCommit;
     private final Properties dbInfo;
     private final String url;
+    private final DataSource dataSource;
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private volatile Dialect dialect;
+    private volatile Boolean validateQueries;
+
+    /**
+     * Conexiones obtenidas del DataSource (ej: un pool), sin cargar el driver
+     */
+    public Connector(DataSource dataSource) throws IOException {
+        if (dataSource == null) throw new IOException("DataSource can't be null!");
+        this.dbInfo = new Properties();
+        this.url = null;
+        this.dataSource = dataSource;
+    }
 
     public Connector(Config config) throws IOException {
+        this.dataSource = null;
         this.dbInfo = (config == null ? new Config("db.properties") : config).getProperties();
         this.url = dbInfo.getProperty("url");
         if (this.url == null) throw new IOException("Missing url property!");
@@ -37,16 +79,228 @@ public class Connector {
         }
     }
 
+    /**
+     * Dentro de un {@link Deadline} la conexión se espera como máximo el tiempo restante, y
+     * la espera termina si el hilo es interrumpido. Una conexión obtenida después se cierra.
+     * Como mucho {@value #MAX_ACQUIRERS} conexiones se abren así a la vez, las demás fallan
+     * de inmediato (ej: si el servidor no responde al login).
+     * Si hay un {@link Bulkhead} para el workload del hilo, primero se espera un permiso.
+     */
     public Connection getConn() throws SQLException {
-        return DriverManager.getConnection(url, dbInfo);
+        Bulkhead bulkhead = bulkheads.get(Bulkhead.getWorkload());
+        if (bulkhead == null) bulkhead = bulkheads.get(Bulkhead.DEFAULT);
+        if (bulkhead == null) return this.acquire();
+        Bulkhead.Permit permit = bulkhead.acquire();
+        try {
+            return bulkhead.wrap(this.acquire(), permit);
+        } catch (SQLException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    private Connection acquire() throws SQLException {
+        Long remaining = Deadline.remainingNanos();
+        if (Thread.currentThread().isInterrupted())
+            throw new SQLException("Interrupted before getting a connection!");
+        if (remaining == null) return this.openConnection();
+        if (remaining <= 0) throw new SQLTimeoutException("Deadline exceeded before getting a connection!");
+        CompletableFuture<Connection> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.openConnection();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, ACQUIRER);
+        } catch (RejectedExecutionException e) {
+            throw new SQLTransientConnectionException("Too many connections being opened within a deadline!", e);
+        }
+        try {
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Connector.discard(future);
+            throw new SQLTimeoutException("Deadline exceeded while getting a connection!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Connector.discard(future);
+            throw new SQLException("Interrupted while getting a connection!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        return dataSource == null ? DriverManager.getConnection(url, dbInfo) : dataSource.getConnection();
+    }
+
+    private static void discard(CompletableFuture<Connection> future) {
+        future.thenAccept(connection -> {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Limita las conexiones en uso del workload con el nombre del bulkhead.
+     * {@link Bulkhead#DEFAULT} se aplica a los workloads sin bulkhead propio.
+     */
+    public Connector addBulkhead(Bulkhead bulkhead) {
+        bulkheads.put(bulkhead.getName(), bulkhead);
+        return this;
+    }
+
+    /**
+     * @return Bulkhead registrado con ese nombre o null
+     */
+    public Bulkhead getBulkhead(String name) {
+        return name == null ? null : bulkheads.get(name);
+    }
+
+    /**
+     * Dialecto según la propiedad "driver". Con DataSource se obtiene de la
+     * url de la primera conexión.
+     */
+    public Dialect getDialect() throws SQLException {
+        if (dialect == null) {
+            if (dataSource == null) dialect = Dialect.of(dbInfo.getProperty("driver"));
+            else try (Connection connection = this.getConn()) {
+                dialect = Dialect.of(connection);
+            }
+        }
+        return dialect;
+    }
+
+    /**
+     * Define si {@link #warmUp()} prepara las consultas de {@link QueryRegistry}. El registro es
+     * global y {@link SqlQuery} usa el conector por defecto, así que por defecto sólo se validan
+     * en él; en un conector con nombre se activa con este método o la propiedad "validateQueries".
+     */
+    public Connector setValidateQueries(boolean validateQueries) {
+        this.validateQueries = validateQueries;
+        return this;
+    }
+
+    private boolean isValidateQueries() {
+        Boolean validate = validateQueries;
+        if (validate != null) return validate;
+        String property = dbInfo.getProperty("validateQueries");
+        if (property != null) return Boolean.parseBoolean(property.trim());
+        return !connectors.containsValue(this);
+    }
+
+    /**
+     * Abre <code>minIdle</code> conexiones (propiedad "minIdle", por defecto 1) y, si está
+     * activo {@link #setValidateQueries(boolean)}, prepara en cada una las consultas de
+     * {@link QueryRegistry}. Con un DataSource con pool las conexiones quedan abiertas en el
+     * pool al cerrarse.
+     */
+    public void warmUp() throws IOException, SQLException {
+        String minIdle = dbInfo.getProperty("minIdle", "1");
+        try {
+            this.warmUp(Integer.parseInt(minIdle.trim()));
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Invalid minIdle property '%s'!", minIdle));
+        }
+    }
+
+    public void warmUp(int minIdle) throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        boolean validate = this.isValidateQueries();
+        try {
+            for (int i = 0; i < Math.max(minIdle, 1); i++) {
+                Connection connection = this.getConn();
+                connections.add(connection);
+                if (validate) QueryRegistry.validate(connection);
+            }
+        } finally {
+            for (Connection connection : connections) try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Conector por defecto, creado una sola vez con la última configuración.
+     * Después de inicializado, la lectura no requiere sincronización.
+     */
+    public static Connector getDefault() throws IOException {
+        Connector current = connector;
+        if (current != null) return current;
+        synchronized (Connector.class) {
+            if (connector == null) connector = initDataSource == null
+                    ? new Connector(initConfig) : new Connector(initDataSource);
+            return connector;
+        }
     }
 
     public static Connection getConnection() throws SQLException, IOException {
-        if (connector == null) connector = new Connector(initConfig);
-        return connector.getConn();
+        return Connector.getDefault().getConn();
+    }
+
+    public static Connection getConnection(String name) throws SQLException, IOException {
+        return Connector.get(name).getConn();
+    }
+
+    /**
+     * Registra un conector con nombre adicional al conector por defecto.
+     * El driver se carga al registrarlo.
+     *
+     * @param name   Nombre del origen de datos
+     * @param config Configuración de la conexión
+     */
+    public static void register(String name, Config config) throws IOException {
+        Connector.register(name, new Connector(config));
+    }
+
+    public static void register(String name, DataSource dataSource) throws IOException {
+        Connector.register(name, new Connector(dataSource));
+    }
+
+    private static void register(String name, Connector connector) throws IOException {
+        if (name == null || name.trim().isEmpty()) throw new IOException("Connector name can't be null or empty!");
+        connectors.put(name, connector);
+    }
+
+    public static Connector get(String name) throws IOException {
+        Connector registered = name == null ? null : connectors.get(name);
+        if (registered == null) throw new IOException(String.format("Connector '%s' not registered!", name));
+        return registered;
+    }
+
+    /**
+     * Calienta el conector por defecto y todos los registrados. Pensado para
+     * ejecutarse antes de que la aplicación se declare lista para recibir tráfico.
+     */
+    public static void warmUpAll() throws IOException, SQLException {
+        if (connectors.isEmpty() || initConfig != null || initDataSource != null)
+            Connector.getDefault().warmUp();
+        for (Connector registered : connectors.values()) registered.warmUp();
+    }
+
+    private static synchronized void setDefault(Config config, DataSource dataSource) {
+        initConfig = config;
+        initDataSource = dataSource;
+        connector = null;
     }
 
     public static void batch(ThrowingConsumer<Connection> consumer) throws Exception {
+        GroupCommit group = groupCommit;
+        if (group != null && group.isRunning() && !group.isGroupThread()) {
+            Connector.await(group.submit(connection -> {
+                consumer.accept(connection);
+                return null;
+            }));
+            return;
+        }
         try (Connection connection = Connector.getConnection()) {
             connection.setAutoCommit(false);
             try {
@@ -60,6 +314,8 @@ public class Connector {
     }
 
     public static <T> T batch(ThrowingFunction<Connection, T> function) throws Exception {
+        GroupCommit group = groupCommit;
+        if (group != null && group.isRunning() && !group.isGroupThread()) return Connector.await(group.submit(function));
         try (Connection connection = Connector.getConnection()) {
             connection.setAutoCommit(false);
             try {
@@ -73,6 +329,28 @@ public class Connector {
         }
     }
 
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Activa (o desactiva con null) el commit agrupado para {@link #batch(ThrowingConsumer)}:
+     * las transacciones de hilos concurrentes se confirman juntas. Si el hilo de grupo terminó,
+     * cada batch vuelve a usar su propia transacción.
+     *
+     * @param groupCommit Ejecutor de commit agrupado
+     */
+    public static void setGroupCommit(GroupCommit groupCommit) {
+        Connector.groupCommit = groupCommit;
+    }
+
     /**
      * Sample Use:
      * <pre>
@@ -88,7 +366,7 @@ public class Connector {
      * @param connectionString Propiedad: "key = value"
      */
     public static void configure(String[] connectionString) {
-        initConfig = new Config(connectionString);
+        Connector.setDefault(new Config(connectionString), null);
     }
 
     /**
@@ -101,7 +379,7 @@ public class Connector {
      * @param connectionString Propiedad: "key = value"
      */
     public static void configure(String connectionString) {
-        initConfig = new Config(connectionString == null ? null : connectionString.split(";"));
+        Connector.setDefault(new Config(connectionString == null ? null : connectionString.split(";")), null);
     }
 
     /**
@@ -118,7 +396,7 @@ public class Connector {
      * @param properties input properties
      */
     public static void configure(Properties properties) {
-        initConfig = new Config(properties);
+        Connector.setDefault(new Config(properties), null);
     }
 
     /**
@@ -137,6 +415,15 @@ public class Connector {
      *                     "db.properties"
      */
     public static void configure(File propertyFile) {
-        initConfig = new Config(propertyFile == null ? null : propertyFile.getName());
+        Connector.setDefault(new Config(propertyFile == null ? null : propertyFile.getName()), null);
+    }
+
+    /**
+     * Las conexiones por defecto se obtienen del DataSource (ej: un pool)
+     *
+     * @param dataSource Origen de datos
+     */
+    public static void configure(DataSource dataSource) {
+        Connector.setDefault(null, dataSource);
     }
 }
\ No newline at end of file
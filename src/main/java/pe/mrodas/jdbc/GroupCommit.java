@@ -0,0 +1,175 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import pe.mrodas.jdbc.helper.ThrowingFunction;
+
+/**
+ * Merges small transactions submitted by concurrent threads into one physical transaction,
+ * so many callers share a single commit. Each unit runs inside its own savepoint: if it fails
+ * only its changes are rolled back and only its future completes with the error.
+ * <br>
+ * Enabled for {@link Connector#batch(pe.mrodas.jdbc.helper.ThrowingConsumer)} with
+ * {@link Connector#setGroupCommit(GroupCommit)}. Units run sequentially on the group thread,
+ * share the connection and must not commit, roll back or close it.
+ *
+ * @author Marco Rodas
+ */
+public class GroupCommit implements AutoCloseable {
+
+    private final LinkedBlockingQueue<Unit<?>> queue = new LinkedBlockingQueue<>();
+    private final int maxGroupSize;
+    private final long maxWaitNanos;
+    private final Thread leader;
+    private volatile boolean running = true;
+
+    /**
+     * @param maxGroupSize  Máximo de unidades por transacción
+     * @param maxWaitMicros Tiempo máximo que la primera unidad espera a otras antes de ejecutarse
+     */
+    public GroupCommit(int maxGroupSize, long maxWaitMicros) {
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxWaitMicros));
+        this.leader = new Thread(this::groupLoop, "group-commit");
+        this.leader.setDaemon(true);
+        this.leader.start();
+    }
+
+    public GroupCommit() {
+        this(64, 500);
+    }
+
+    public <T> CompletableFuture<T> submit(ThrowingFunction<Connection, T> function) throws IOException {
+        if (!running) throw new IOException("GroupCommit is closed!");
+        Unit<T> unit = new Unit<>(function);
+        queue.offer(unit);
+        // close() pudo ocurrir entre la validación y offer: si nadie la tomó, no se ejecutará
+        if (!running && queue.remove(unit)) unit.future.completeExceptionally(new IOException("GroupCommit is closed!"));
+        return unit.future;
+    }
+
+    /**
+     * @return true si el hilo actual es el que ejecuta los grupos (ej: un batch anidado)
+     */
+    boolean isGroupThread() {
+        return Thread.currentThread() == leader;
+    }
+
+    /**
+     * @return true si el hilo de grupo sigue aceptando y ejecutando unidades
+     */
+    boolean isRunning() {
+        return running && leader.isAlive();
+    }
+
+    private void groupLoop() {
+        List<Unit<?>> group = new ArrayList<>(maxGroupSize);
+        try {
+            while (running || !queue.isEmpty()) try {
+                Unit<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (group.size() < maxGroupSize) {
+                    Unit<?> next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    group.add(next);
+                }
+                this.execute(group);
+                group.clear();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Throwable e) {
+                // el hilo de grupo sobrevive: solo falla el grupo en curso
+                for (Unit<?> unit : group) unit.future.completeExceptionally(e);
+                group.clear();
+            }
+        } finally {
+            running = false;
+            IOException e = new IOException("GroupCommit was interrupted!");
+            for (Unit<?> unit : group) unit.future.completeExceptionally(e);
+            for (Unit<?> unit; (unit = queue.poll()) != null; ) unit.future.completeExceptionally(e);
+        }
+    }
+
+    private void execute(List<Unit<?>> group) {
+        List<Unit<?>> succeeded = new ArrayList<>(group.size());
+        try (Connection connection = Connector.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Unit<?> unit : group) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        unit.run(connection);
+                        succeeded.add(unit);
+                    } catch (Throwable e) {
+                        connection.rollback(savepoint);
+                        unit.future.completeExceptionally(e);
+                    } finally {
+                        GroupCommit.release(connection, savepoint);
+                    }
+                }
+                connection.commit();
+            } catch (Throwable e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (Throwable e) {
+            for (Unit<?> unit : group) unit.future.completeExceptionally(e);
+            return;
+        }
+        for (Unit<?> unit : succeeded) unit.complete();
+    }
+
+    /**
+     * Libera el savepoint para que no se acumulen en la transacción del grupo
+     */
+    private static void release(Connection connection, Savepoint savepoint) {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException ignored) {
+            // no soportado por el driver: se libera al confirmar
+        }
+    }
+
+    /**
+     * Deja de aceptar unidades y espera a que terminen las pendientes
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            leader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Unit<?> unit; (unit = queue.poll()) != null; )
+            unit.future.completeExceptionally(new IOException("GroupCommit is closed!"));
+    }
+
+    private static class Unit<T> {
+        private final ThrowingFunction<Connection, T> function;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        private Unit(ThrowingFunction<Connection, T> function) {
+            this.function = function;
+        }
+
+        private void run(Connection connection) throws Exception {
+            result = function.apply(connection);
+        }
+
+        private void complete() {
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+
+/**
+ * Hands out primary keys from blocks reserved in the database with one round-trip each,
+ * so inserts can set their ids client-side and be batched without RETURN_GENERATED_KEYS:
+ * <pre>
+ * {@code
+ * IdAllocator ids = IdAllocator.sequence("SELECT nextval('order_seq')", 100);
+ * SqlInsert insert = new SqlInsert("orders");
+ * for (Order order : orders) insert.addId("id", ids, order::setId).addField(...);
+ * }</pre>
+ * Ids inside a block come from a lock-free counter; only reserving the next block is
+ * synchronized. Ids of a block not fully used are lost when the application stops.
+ *
+ * @author Marco Rodas
+ */
+public abstract class IdAllocator {
+
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    protected IdAllocator(int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be greater than 0!");
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Reserva un bloque nuevo en la base de datos
+     *
+     * @param blockSize Cantidad de ids del bloque
+     * @return Primer id del bloque reservado
+     */
+    protected abstract long reserve(int blockSize) throws IOException, SQLException;
+
+    public long next() throws IOException, SQLException {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) return id;
+            synchronized (this) {
+                if (block == current) {
+                    long first = this.reserve(blockSize);
+                    block = new Block(first, first + blockSize);
+                }
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Bloques obtenidos de una secuencia cuyo incremento es igual a <code>blockSize</code>
+     * (ej: <code>CREATE SEQUENCE order_seq INCREMENT BY 100</code>).
+     *
+     * @param nextValueQuery Consulta que devuelve el siguiente valor ej: "SELECT nextval('order_seq')"
+     * @param blockSize      Incremento de la secuencia
+     */
+    public static IdAllocator sequence(String nextValueQuery, int blockSize) {
+        return new IdAllocator(blockSize) {
+            @Override
+            protected long reserve(int blockSize) throws IOException, SQLException {
+                return new SqlQuery<Long>().setSql(nextValueQuery).execute((statement, rs) -> {
+                    if (rs.next()) return rs.getLong(1);
+                    throw new SQLException(String.format("Query '%s' returned no value!", nextValueQuery));
+                });
+            }
+        };
+    }
+
+    /**
+     * Bloques obtenidos de una tabla de contadores, incrementando en su propia transacción
+     * la columna que guarda el siguiente id libre.
+     *
+     * @param table       Tabla de contadores
+     * @param nameColumn  Columna con el nombre del contador
+     * @param valueColumn Columna con el siguiente id libre
+     * @param name        Nombre del contador (la fila debe existir)
+     * @param blockSize   Cantidad de ids por bloque
+     */
+    public static IdAllocator table(String table, String nameColumn, String valueColumn, String name, int blockSize) {
+        String update = String.format("UPDATE %s SET %s = %s + :blockSize WHERE %s = :name", table, valueColumn, valueColumn, nameColumn);
+        String select = String.format("SELECT %s FROM %s WHERE %s = :name", valueColumn, table, nameColumn);
+        return new IdAllocator(blockSize) {
+            @Override
+            protected long reserve(int blockSize) throws IOException, SQLException {
+                try {
+                    return Connector.batch(connection -> {
+                        int updated = new SqlQuery<>(connection, Autoclose.NO).setSql(update)
+                                .addParameter("blockSize", blockSize).addParameter("name", name).execute();
+                        if (updated != 1)
+                            throw new IOException(String.format("Counter '%s' not found in table '%s'!", name, table));
+                        Long next = new SqlQuery<Long>(connection, Autoclose.NO).setSql(select)
+                                .addParameter("name", name).execute((statement, rs) -> rs.next() ? rs.getLong(1) : null);
+                        return next - blockSize;
+                    });
+                } catch (IOException | SQLException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import pe.mrodas.jdbc.helper.ThrowingBiConsumer;
+
+/**
+ * Iterates a query by pages using keyset pagination. The base query marks with
+ * <code>&lt;keyset&gt;</code> where the predicate of the key goes, and each page appends the
+ * order and limit, so the index of the key is used instead of filtering a derived table
+ * (MySQL 5.6 materializes those again for every page):
+ * <pre>
+ * {@code
+ * new KeysetPager<Order>("SELECT o.* FROM orders o WHERE o.status = :status AND <keyset>", 500, "o.id")
+ * // each page runs: ... AND (o.id > :keyset0) ORDER BY o.id LIMIT :keysetLimit
+ * }</pre>
+ * The next page is fetched on a background thread while the caller handles the current one.
+ * Key columns must be part of the base query's select list (they can have the alias of the
+ * table if they are also in the result without it) and identify a row uniquely. The base
+ * query must not have its own ORDER BY or LIMIT. Rows with a NULL key are not read.
+ * <br>
+ * After each page {@link #getLastKey()} can be saved to restart the scan later with
+ * {@link #resumeFrom(Object...)}.
+ *
+ * @author Marco Rodas
+ */
+public class KeysetPager<T> implements Iterator<List<T>>, Iterable<List<T>>, AutoCloseable {
+
+    private final static String KEYSET = "<keyset>";
+    private final static String QUERY = "<query> ORDER BY <keys> LIMIT :keysetLimit";
+    private final HashMap<String, Object> parameters = new HashMap<>();
+    private final String baseQuery;
+    private final String[] keyColumns;
+    private final int pageSize;
+    private Supplier<T> objGenerator;
+    private ThrowingBiConsumer<T, ResultSet> mapper;
+    private ExecutorService executor;
+    private boolean ownExecutor, finished;
+    private Future<Page<T>> pending;
+    private Page<T> peeked;
+    private Object[] lastKey;
+    private String error;
+
+    /**
+     * @param baseQuery  Consulta con el marcador &lt;keyset&gt; en su WHERE
+     * @param keyColumns Columnas de la llave única, en el orden de recorrido
+     */
+    public KeysetPager(String baseQuery, int pageSize, String... keyColumns) {
+        this.baseQuery = baseQuery;
+        this.pageSize = pageSize;
+        this.keyColumns = keyColumns;
+    }
+
+    public KeysetPager<T> setMapper(Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        this.objGenerator = objGenerator;
+        this.mapper = mapper;
+        return this;
+    }
+
+    /**
+     * Agrega un parámetro de la consulta base, definido con la sintaxis ":parameter"
+     */
+    public KeysetPager<T> addParameter(String name, Object value) {
+        if (error != null) return this;
+        if (name == null || name.trim().isEmpty())
+            error = "Parameter name can't be null or empty!";
+        else if (value == null)
+            error = String.format("Parameter '%s' value can't be null!", name);
+        else parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Continúa el recorrido después de la fila con la llave indicada
+     *
+     * @param lastKey Valores de las columnas llave, en el mismo orden del constructor
+     */
+    public KeysetPager<T> resumeFrom(Object... lastKey) {
+        if (error != null) return this;
+        if (lastKey == null || lastKey.length != keyColumns.length)
+            error = String.format("Last key must have %s values!", keyColumns.length);
+        else this.lastKey = lastKey.clone();
+        return this;
+    }
+
+    /**
+     * Por defecto se usa un hilo propio que se termina al cerrar el paginador
+     */
+    public KeysetPager<T> setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @return Llave de la última fila entregada, o null si aún no se entregó ninguna página
+     */
+    public Object[] getLastKey() {
+        return lastKey == null ? null : lastKey.clone();
+    }
+
+    private void validate() throws IOException {
+        if (error != null) throw new IOException(error);
+        if (baseQuery == null || baseQuery.trim().isEmpty())
+            throw new IOException("Base query can't be null or empty!");
+        if (!baseQuery.contains(KEYSET))
+            throw new IOException(String.format("Base query must contain the %s marker!", KEYSET));
+        if (keyColumns == null || keyColumns.length == 0)
+            throw new IOException("Key columns can't be null or empty!");
+        if (pageSize < 1) throw new IOException("Page size must be greater than 0!");
+        if (mapper == null || objGenerator == null) throw new IOException("Mapper can't be null!");
+    }
+
+    /**
+     * @return Consulta de una página, después de la llave si <code>resumed</code>
+     */
+    static String getSql(String baseQuery, String[] keyColumns, boolean resumed) {
+        String filters = resumed ? KeysetPager.getFilters(keyColumns) : KeysetPager.getNotNull(keyColumns);
+        return QUERY.replace("<query>", baseQuery.replace(KEYSET, filters))
+                .replace("<keys>", String.join(", ", keyColumns));
+    }
+
+    /**
+     * @return Filtro de las filas después de la llave ":keyset0, :keyset1..." en el orden de las columnas
+     */
+    static String getFilters(String[] keyColumns) {
+        List<String> disjunction = new ArrayList<>();
+        for (int i = 0; i < keyColumns.length; i++) {
+            List<String> conjunction = new ArrayList<>();
+            for (int j = 0; j < i; j++)
+                conjunction.add(String.format("%s = :keyset%s", keyColumns[j], j));
+            conjunction.add(String.format("%s > :keyset%s", keyColumns[i], i));
+            disjunction.add(String.join(" AND ", conjunction));
+        }
+        return String.format("((%s))", String.join(") OR (", disjunction));
+    }
+
+    /**
+     * @return Filtro de la primera página: las filas con la llave incompleta nunca se alcanzan después
+     */
+    static String getNotNull(String[] keyColumns) {
+        List<String> conjunction = new ArrayList<>();
+        for (String column : keyColumns) conjunction.add(column + " IS NOT NULL");
+        return String.format("(%s)", String.join(" AND ", conjunction));
+    }
+
+    private Page<T> fetch(Object[] after) throws IOException, SQLException {
+        String query = KeysetPager.getSql(baseQuery, keyColumns, after != null);
+        SqlQuery<Page<T>> sqlQuery = new SqlQuery<Page<T>>().setSql(query)
+                .addParameter("keysetLimit", pageSize);
+        parameters.forEach(sqlQuery::addParameter);
+        if (after != null) for (int i = 0; i < after.length; i++)
+            sqlQuery.addParameter("keyset" + i, after[i]);
+        return sqlQuery.execute((statement, rs) -> {
+            Page<T> page = new Page<>(keyColumns.length);
+            while (rs.next()) {
+                T obj = objGenerator.get();
+                mapper.accept(obj, rs);
+                page.rows.add(obj);
+                for (int i = 0; i < keyColumns.length; i++)
+                    page.lastKey[i] = rs.getObject(keyColumns[i].substring(keyColumns[i].lastIndexOf('.') + 1));
+            }
+            return page;
+        });
+    }
+
+    private void prefetch(Object[] after) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "keyset-pager");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ownExecutor = true;
+        }
+        pending = executor.submit(() -> this.fetch(after));
+    }
+
+    private Page<T> take() throws IOException, SQLException {
+        if (peeked != null) {
+            Page<T> page = peeked;
+            peeked = null;
+            return page;
+        }
+        if (finished && pending == null) return null;
+        this.validate();
+        if (pending == null) this.prefetch(lastKey);
+        Page<T> page;
+        try {
+            page = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for page!", e);
+        } catch (ExecutionException e) {
+            finished = true;
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            pending = null;
+        }
+        if (page.rows.size() < pageSize) finished = true;
+        else this.prefetch(page.lastKey);
+        return page.rows.isEmpty() ? null : page;
+    }
+
+    /**
+     * Obtiene la siguiente página y solicita en segundo plano la que le sigue.
+     *
+     * @return Filas de la página o null si no hay más filas
+     */
+    public List<T> nextPage() throws IOException, SQLException {
+        Page<T> page = this.take();
+        if (page == null) {
+            this.close();
+            return null;
+        }
+        lastKey = page.lastKey;
+        return page.rows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (peeked == null) try {
+            peeked = this.take();
+            if (peeked == null) this.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+        }
+        return peeked != null;
+    }
+
+    @Override
+    public List<T> next() {
+        if (!this.hasNext()) throw new NoSuchElementException();
+        try {
+            return this.nextPage();
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Iterator<List<T>> iterator() {
+        return this;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        if (pending != null) pending.cancel(false);
+        pending = null;
+        if (ownExecutor) executor.shutdown();
+        ownExecutor = false;
+        executor = null;
+    }
+
+    private static class Page<P> {
+        private final List<P> rows = new ArrayList<>();
+        private final Object[] lastKey;
+
+        private Page(int keys) {
+            this.lastKey = new Object[keys];
+        }
+    }
+}
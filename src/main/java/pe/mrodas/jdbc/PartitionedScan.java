@@ -0,0 +1,280 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import pe.mrodas.jdbc.helper.ThrowingBiConsumer;
+import pe.mrodas.jdbc.helper.ThrowingConsumer;
+
+/**
+ * Scans a query in parallel by splitting the range of a numeric or date key column into
+ * partitions, each one read on its own connection. The base query marks with
+ * <code>&lt;range&gt;</code> where the predicate of each partition goes, so it reaches the
+ * index of the key instead of filtering a derived table (MySQL 5.6 materializes those):
+ * <pre>
+ * {@code
+ * new PartitionedScan<Order>("SELECT * FROM orders o WHERE o.status = :status AND <range>", "o.id", 8)
+ * // each partition runs: ... AND (o.id >= :scanFrom AND o.id < :scanTo)
+ * }</pre>
+ * By default the range between MIN(key) and MAX(key) is split evenly. For skewed keys the
+ * split points can be given with {@link #setBoundaries(Object...)}, e.g. from a histogram or
+ * an NTILE query. Rows with a NULL key are not read.
+ * <br>
+ * The consumer is called from all partitions at once, so it must be thread-safe. The first
+ * failure cancels the other partitions and is thrown.
+ *
+ * @author Marco Rodas
+ */
+public class PartitionedScan<T> {
+
+    private final static String RANGE = "<range>";
+    private final static String RANGE_QUERY = "SELECT MIN(<key>) scanMin, MAX(<key>) scanMax FROM (<query>) scan";
+    private final HashMap<String, Object> parameters = new HashMap<>();
+    private final String baseQuery, keyColumn;
+    private final int partitions;
+    private Supplier<T> objGenerator;
+    private ThrowingBiConsumer<T, ResultSet> mapper;
+    private ExecutorService executor;
+    private List<Object> boundaries;
+    private String error;
+
+    /**
+     * @param baseQuery  Consulta con el marcador &lt;range&gt; en su WHERE
+     * @param keyColumn  Columna numérica o de fecha de la consulta base, puede tener el alias
+     *                   de la tabla (ej: "o.id") si también está en el resultado sin él
+     * @param partitions Número de rangos, cada uno con su propia conexión
+     */
+    public PartitionedScan(String baseQuery, String keyColumn, int partitions) {
+        this.baseQuery = baseQuery;
+        this.keyColumn = keyColumn;
+        this.partitions = partitions;
+    }
+
+    public PartitionedScan<T> setMapper(Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        this.objGenerator = objGenerator;
+        this.mapper = mapper;
+        return this;
+    }
+
+    /**
+     * Agrega un parámetro de la consulta base, definido con la sintaxis ":parameter"
+     */
+    public PartitionedScan<T> addParameter(String name, Object value) {
+        if (error != null) return this;
+        if (name == null || name.trim().isEmpty())
+            error = "Parameter name can't be null or empty!";
+        else if (value == null)
+            error = String.format("Parameter '%s' value can't be null!", name);
+        else parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Define los puntos de corte en lugar de calcularlos con MIN/MAX. Con k puntos
+     * ordenados se leen k + 1 rangos.
+     */
+    public PartitionedScan<T> setBoundaries(Object... boundaries) {
+        if (error != null) return this;
+        if (boundaries == null || boundaries.length == 0)
+            error = "Boundaries can't be null or empty!";
+        else this.boundaries = new ArrayList<>(Arrays.asList(boundaries));
+        return this;
+    }
+
+    /**
+     * Por defecto se usa un hilo propio por rango, que se termina al finalizar
+     */
+    public PartitionedScan<T> setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    private void validate() throws IOException {
+        if (error != null) throw new IOException(error);
+        if (baseQuery == null || baseQuery.trim().isEmpty())
+            throw new IOException("Base query can't be null or empty!");
+        if (!baseQuery.contains(RANGE))
+            throw new IOException(String.format("Base query must contain the %s marker!", RANGE));
+        if (keyColumn == null || keyColumn.trim().isEmpty())
+            throw new IOException("Key column can't be null or empty!");
+        if (partitions < 1) throw new IOException("Partitions must be greater than 0!");
+        if (mapper == null || objGenerator == null) throw new IOException("Mapper can't be null!");
+    }
+
+    /**
+     * @return Puntos de corte entre rangos, o null si la consulta no tiene filas con llave
+     */
+    public List<Object> getBoundaries() throws IOException, SQLException {
+        this.validate();
+        if (boundaries != null) return Collections.unmodifiableList(boundaries);
+        String column = keyColumn.substring(keyColumn.lastIndexOf('.') + 1);
+        String query = RANGE_QUERY.replace("<key>", column)
+                .replace("<query>", baseQuery.replace(RANGE, keyColumn + " IS NOT NULL"));
+        SqlQuery<Object[]> sqlQuery = new SqlQuery<Object[]>().setSql(query);
+        parameters.forEach(sqlQuery::addParameter);
+        Object[] range = sqlQuery.execute((statement, rs) -> rs.next()
+                ? new Object[]{rs.getObject("scanMin"), rs.getObject("scanMax")}
+                : new Object[2]);
+        if (range[0] == null || range[1] == null) return null;
+        return PartitionedScan.split(range[0], range[1], partitions);
+    }
+
+    static List<Object> split(Object min, Object max, int partitions) throws IOException {
+        List<Object> points = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            Object point = PartitionedScan.interpolate(min, max, i, partitions);
+            if (PartitionedScan.compare(point, min) > 0 && PartitionedScan.compare(point, max) <= 0
+                    && (points.isEmpty() || PartitionedScan.compare(point, points.get(points.size() - 1)) > 0))
+                points.add(point);
+        }
+        return points;
+    }
+
+    private static Object interpolate(Object min, Object max, int i, int partitions) throws IOException {
+        if (min instanceof Long || min instanceof Integer || min instanceof Short || min instanceof Byte || min instanceof BigInteger) {
+            BigInteger lo = new BigInteger(min.toString()), hi = new BigInteger(max.toString());
+            BigInteger point = hi.subtract(lo).multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(partitions)).add(lo);
+            return min instanceof BigInteger ? point : (Object) point.longValue();
+        }
+        if (min instanceof Number) {
+            BigDecimal lo = new BigDecimal(min.toString()), hi = new BigDecimal(max.toString());
+            return hi.subtract(lo).multiply(BigDecimal.valueOf(i))
+                    .divide(BigDecimal.valueOf(partitions), Math.max(lo.scale(), hi.scale()) + 6, RoundingMode.HALF_UP).add(lo);
+        }
+        if (min instanceof java.util.Date) {
+            long lo = ((java.util.Date) min).getTime(), hi = ((java.util.Date) max).getTime();
+            return new Timestamp(lo + (hi - lo) / partitions * i);
+        }
+        if (min instanceof LocalDate) {
+            long lo = ((LocalDate) min).toEpochDay(), hi = ((LocalDate) max).toEpochDay();
+            return LocalDate.ofEpochDay(lo + (hi - lo) * i / partitions);
+        }
+        if (min instanceof LocalDateTime) {
+            LocalDateTime lo = (LocalDateTime) min;
+            long seconds = Duration.between(lo, (LocalDateTime) max).getSeconds();
+            return lo.plusSeconds(seconds / partitions * i);
+        }
+        throw new IOException(String.format("Key column type '%s' can't be partitioned!", min.getClass().getName()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number)
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        if (a instanceof java.util.Date && b instanceof java.util.Date)
+            return Long.compare(((java.util.Date) a).getTime(), ((java.util.Date) b).getTime());
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * Lee todos los rangos en paralelo
+     *
+     * @param consumer Recibe cada fila, desde varios hilos a la vez
+     * @return Total de filas leídas
+     */
+    public long execute(ThrowingConsumer<T> consumer) throws IOException, SQLException {
+        List<Object> points = this.getBoundaries();
+        if (points == null) return 0;
+        return this.execute(points, partition -> consumer);
+    }
+
+    /**
+     * Lee todos los rangos en paralelo
+     *
+     * @return Filas en el orden de los rangos
+     */
+    public List<T> executeForList() throws IOException, SQLException {
+        List<Object> points = this.getBoundaries();
+        if (points == null) return new ArrayList<>();
+        List<List<T>> parts = new ArrayList<>();
+        for (int i = 0; i <= points.size(); i++) parts.add(new ArrayList<>());
+        long total = this.execute(points, partition -> parts.get(partition)::add);
+        List<T> list = new ArrayList<>((int) total);
+        parts.forEach(list::addAll);
+        return list;
+    }
+
+    private long execute(List<Object> points, IntFunction<ThrowingConsumer<T>> consumers) throws IOException, SQLException {
+        List<SqlQuery<Long>> queries = new ArrayList<>();
+        for (int i = 0; i <= points.size(); i++)
+            queries.add(this.getPartitionQuery(i == 0 ? null : points.get(i - 1), i == points.size() ? null : points.get(i)));
+        boolean ownExecutor = executor == null;
+        ExecutorService pool = ownExecutor ? Executors.newFixedThreadPool(queries.size(), runnable -> {
+            Thread thread = new Thread(runnable, "partitioned-scan");
+            thread.setDaemon(true);
+            return thread;
+        }) : executor;
+        CompletionService<Long> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                SqlQuery<Long> query = queries.get(i);
+                ThrowingConsumer<T> consumer = consumers.apply(i);
+                futures.add(completion.submit(() -> query.execute((statement, rs) -> {
+                    long rows = 0;
+                    while (rs.next()) {
+                        T obj = objGenerator.get();
+                        mapper.accept(obj, rs);
+                        consumer.accept(obj);
+                        rows++;
+                    }
+                    return rows;
+                })));
+            }
+            long total = 0;
+            for (int i = 0; i < futures.size(); i++) total += completion.take().get();
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for partitions!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            for (int i = 0; i < futures.size(); i++)
+                if (!futures.get(i).isDone()) {
+                    futures.get(i).cancel(false);
+                    try {
+                        queries.get(i).cancel();
+                    } catch (SQLException ignored) {
+                    }
+                }
+            if (ownExecutor) pool.shutdown();
+        }
+    }
+
+    private SqlQuery<Long> getPartitionQuery(Object from, Object to) {
+        List<String> range = new ArrayList<>();
+        if (from != null) range.add(String.format("%s >= :scanFrom", keyColumn));
+        if (to != null) range.add(String.format("%s < :scanTo", keyColumn));
+        if (range.isEmpty()) range.add(String.format("%s IS NOT NULL", keyColumn));
+        SqlQuery<Long> sqlQuery = new SqlQuery<Long>().setSql(baseQuery.replace(RANGE, "(" + String.join(" AND ", range) + ")"));
+        parameters.forEach(sqlQuery::addParameter);
+        if (from != null) sqlQuery.addParameter("scanFrom", from);
+        if (to != null) sqlQuery.addParameter("scanTo", to);
+        return sqlQuery;
+    }
+}
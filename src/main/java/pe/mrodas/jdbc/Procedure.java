@@ -15,6 +15,7 @@ import java.util.function.Supplier;
 import pe.mrodas.jdbc.helper.Autoclose;
 import pe.mrodas.jdbc.helper.CursorIterator;
 import pe.mrodas.jdbc.helper.Parameter;
+import pe.mrodas.jdbc.helper.SpillList;
 import pe.mrodas.jdbc.helper.SqlStatement;
 import pe.mrodas.jdbc.helper.SqlThrowingBiConsumer;
 import pe.mrodas.jdbc.helper.ThrowingBiConsumer;
@@ -40,6 +41,18 @@ public class Procedure<T> extends SqlStatement<T> {
         return this;
     }
 
+    @Override
+    public Procedure<T> setTimeout(int seconds) {
+        super.setTimeout(seconds);
+        return this;
+    }
+
+    @Override
+    public Procedure<T> setFetchSize(int rows) {
+        super.setFetchSize(rows);
+        return this;
+    }
+
     private boolean errorName(String name) {
         if (error != null) return true;
         boolean error = name == null || name.trim().isEmpty();
@@ -104,7 +117,7 @@ public class Procedure<T> extends SqlStatement<T> {
     @Override
     protected CallableStatement executeStatement() throws IOException, SQLException {
         preparedCall = preparedCall == null ? this.getPreparedCall() : preparedCall;
-        CallableStatement statement = super.getConnection().prepareCall(preparedCall);
+        CallableStatement statement = super.prepare(super.getConnection().prepareCall(preparedCall), preparedCall);
         this.registerParameters(parametersIn, (param, name) -> param.registerIN(statement, name));
         this.registerParameters(parametersOut, (param, name) -> param.registerOUT(statement, name));
         statement.execute();
@@ -133,7 +146,7 @@ public class Procedure<T> extends SqlStatement<T> {
     }
 
     public T call(ThrowingBiFunction<CallableStatement, ResultSet, T> executor) throws IOException, SQLException {
-        CallableStatement statement = this.executeStatement();
+        CallableStatement statement = (CallableStatement) super.open();
         ResultSet rs = statement.getResultSet();
         return super.run(() -> executor.apply(statement, rs));
     }
@@ -142,8 +155,12 @@ public class Procedure<T> extends SqlStatement<T> {
         return super.executeForList(objGenerator, mapper);
     }
 
+    public SpillList<T> callForList(int heapRows, Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) throws IOException, SQLException {
+        return super.executeForList(heapRows, objGenerator, mapper);
+    }
+
     public List<T> callForList(ThrowingBiFunction<CallableStatement, ResultSet, List<T>> executor) throws IOException, SQLException {
-        CallableStatement statement = this.executeStatement();
+        CallableStatement statement = (CallableStatement) super.open();
         ResultSet rs = statement.getResultSet();
         return super.runForList(() -> executor.apply(statement, rs));
     }
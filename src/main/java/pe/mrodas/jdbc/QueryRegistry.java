@@ -0,0 +1,155 @@
+package pe.mrodas.jdbc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import pe.mrodas.jdbc.helper.ParsedSql;
+import pe.mrodas.jdbc.helper.SqlString;
+
+/**
+ * Named queries loaded once from classpath .sql resources. Each query is preceded by a
+ * "-- name: queryName" line and parsed once, so call sites only do a lookup:
+ * <pre>
+ * {@code
+ * QueryRegistry.load("sql");
+ * new SqlQuery<User>().setSql(QueryRegistry.get("findUser")).addParameter("id", id)...
+ * }</pre>
+ * Lookups don't lock: every load publishes a new immutable map.
+ *
+ * @author Marco Rodas
+ */
+public class QueryRegistry {
+
+    private static volatile Map<String, ParsedSql> queries = Collections.emptyMap();
+
+    /**
+     * Carga las consultas de los recursos indicados. Un recurso terminado en
+     * ".sql" se lee directamente, cualquier otro se considera un directorio
+     * y se leen todos sus archivos .sql (incluidos subdirectorios).
+     *
+     * @param locations Recursos del classpath ej: "sql", "sql/users.sql"
+     * @throws IOException Si un recurso no existe o un nombre se repite
+     */
+    public static synchronized void load(String... locations) throws IOException {
+        Map<String, ParsedSql> loaded = new HashMap<>(queries);
+        for (String location : locations)
+            for (URL file : QueryRegistry.findFiles(location))
+                for (Map.Entry<String, String> entry : QueryRegistry.read(file).getNamedQueries().entrySet()) {
+                    ParsedSql previous = loaded.put(entry.getKey(), ParsedSql.parse(entry.getValue()));
+                    if (previous != null)
+                        throw new IOException(String.format("Duplicated query name '%s' in '%s'!", entry.getKey(), file));
+                }
+        queries = Collections.unmodifiableMap(loaded);
+    }
+
+    public static ParsedSql get(String name) throws IOException {
+        ParsedSql query = queries.get(name);
+        if (query == null) throw new IOException(String.format("Query '%s' not found in registry!", name));
+        return query;
+    }
+
+    public static Map<String, ParsedSql> getAll() {
+        return queries;
+    }
+
+    public static synchronized void clear() {
+        queries = Collections.emptyMap();
+    }
+
+    /**
+     * Prepara cada consulta registrada para detectar errores de sintaxis,
+     * tablas o columnas inexistentes antes de recibir tráfico.
+     *
+     * @throws SQLException Con el detalle de todas las consultas inválidas
+     */
+    public static void validate(Connection connection) throws SQLException {
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, ParsedSql> entry : queries.entrySet()) try {
+            connection.prepareStatement(entry.getValue().getSql()).close();
+        } catch (SQLException e) {
+            errors.add(String.format("'%s': %s", entry.getKey(), e.getMessage()));
+        }
+        if (!errors.isEmpty())
+            throw new SQLException("Invalid queries in registry! - " + String.join("; ", errors));
+    }
+
+    public static void validate() throws SQLException, IOException {
+        try (Connection connection = Connector.getConnection()) {
+            QueryRegistry.validate(connection);
+        }
+    }
+
+    private static SqlString read(URL file) throws IOException {
+        try (InputStream stream = file.openStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return new SqlString(reader.lines().toArray(String[]::new));
+        }
+    }
+
+    private static List<URL> findFiles(String location) throws IOException {
+        ClassLoader cl = QueryRegistry.class.getClassLoader();
+        if (location.endsWith(".sql")) {
+            URL file = cl.getResource(location);
+            if (file == null) throw new IOException(String.format("File '%s' doesn't exists!", location));
+            return Collections.singletonList(file);
+        }
+        List<URL> files = new ArrayList<>();
+        Enumeration<URL> dirs = cl.getResources(location);
+        if (!dirs.hasMoreElements())
+            throw new IOException(String.format("Directory '%s' doesn't exists!", location));
+        while (dirs.hasMoreElements()) {
+            URL dir = dirs.nextElement();
+            if ("jar".equals(dir.getProtocol())) files.addAll(QueryRegistry.findInJar(dir));
+            else try (Stream<Path> paths = Files.walk(Paths.get(dir.toURI()))) {
+                for (Path path : paths.filter(p -> p.toString().endsWith(".sql")).sorted().collect(Collectors.toList()))
+                    files.add(path.toUri().toURL());
+            } catch (URISyntaxException e) {
+                throw new IOException(String.format("Invalid directory '%s'!", dir), e);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * El jar lo abre su propio {@link JarURLConnection}, así funciona también con jars anidados
+     * (ej: Spring Boot) o fuera del sistema de archivos por defecto
+     */
+    private static List<URL> findInJar(URL dir) throws IOException {
+        JarURLConnection connection = (JarURLConnection) dir.openConnection();
+        connection.setUseCaches(false);
+        String entry = connection.getEntryName();
+        String prefix = entry == null || entry.isEmpty() ? "" : entry.endsWith("/") ? entry : entry + "/";
+        String base = dir.toString().substring(0, dir.toString().lastIndexOf("!/") + 2);
+        List<URL> files = new ArrayList<>();
+        try (JarFile jar = connection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(prefix) && name.endsWith(".sql")) files.add(new URL(base + name));
+            }
+        }
+        Collections.sort(files, (a, b) -> a.toString().compareTo(b.toString()));
+        return files;
+    }
+}
@@ -0,0 +1,359 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.DmlSql;
+import pe.mrodas.jdbc.helper.Filters;
+import pe.mrodas.jdbc.helper.Parameter;
+
+/**
+ * Binds entity fields straight to PreparedStatement indexes, for batch inserts and updates
+ * of a List of entities without addField, Parameter wrappers or boxing:
+ * <pre>
+ * {@code
+ * RowEncoder<Order> encoder = RowEncoder.of(Order.class);
+ * encoder.insert("orders", orders);
+ * encoder.update("orders", orders, "id");
+ * }</pre>
+ * The encoder is built once per class: each non-static, non-transient field (superclasses
+ * included) is a column with the same name, read with a MethodHandle adapted to its exact
+ * type and bound with the matching setter: primitives and their wrappers, String, BigDecimal,
+ * the java.sql and java.time date types, java.util.Date (as a timestamp), char (as a one-char
+ * string) and enums (by name). Any other type is bound as a {@link Parameter}, as with addField.
+ * Encoders are immutable and thread-safe.
+ *
+ * @author Marco Rodas
+ */
+public final class RowEncoder<E> {
+
+    public final static int BATCH_SIZE = 1000;
+    private final static ClassValue<RowEncoder<?>> encoders = new ClassValue<RowEncoder<?>>() {
+        @Override
+        protected RowEncoder<?> computeValue(Class<?> type) {
+            return RowEncoder.build(type);
+        }
+    };
+    private final Class<E> type;
+    private final Map<String, Column> columns;
+
+    private RowEncoder(Class<E> type, Map<String, Column> columns) {
+        this.type = type;
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> RowEncoder<E> of(Class<E> type) {
+        return (RowEncoder<E>) encoders.get(type);
+    }
+
+    /**
+     * @param fields Campos a incluir, en el orden de las columnas
+     * @throws IOException Si un campo no existe en la clase
+     */
+    public static <E> RowEncoder<E> of(Class<E> type, String... fields) throws IOException {
+        RowEncoder<E> all = RowEncoder.of(type);
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (String field : fields) columns.put(field, all.getColumn(field));
+        return new RowEncoder<>(type, columns);
+    }
+
+    public List<String> getColumns() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    private Column getColumn(String field) throws IOException {
+        Column column = columns.get(field);
+        if (column == null)
+            throw new IOException(String.format("Field '%s' not found in %s!", field, type.getName()));
+        return column;
+    }
+
+    public int insert(String table, List<? extends E> rows) throws IOException, SQLException {
+        return this.insert(table, rows, null, null);
+    }
+
+    /**
+     * Inserta las filas en batches de {@link #BATCH_SIZE}
+     *
+     * @return Suma de los update count conocidos
+     */
+    public int insert(String table, List<? extends E> rows, Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        if (table == null) throw new IOException("Table name can't be null!");
+        if (columns.isEmpty()) throw new IOException("Fields can't be empty!");
+        Column[] binders = columns.values().toArray(new Column[0]);
+        return this.executeBatch(DmlSql.insert(table, this.getColumns()), binders, rows, connection, autoclose);
+    }
+
+    public int update(String table, List<? extends E> rows, String... keys) throws IOException, SQLException {
+        return this.update(table, rows, null, null, keys);
+    }
+
+    /**
+     * Actualiza cada fila filtrando por los campos llave. Los demás campos se asignan,
+     * incluso si son nulos.
+     */
+    public int update(String table, List<? extends E> rows, Connection connection, Autoclose autoclose, String... keys) throws IOException, SQLException {
+        if (table == null) throw new IOException("Table name can't be null!");
+        if (keys == null || keys.length == 0) throw new IOException("Keys can't be empty!");
+        List<String> keyList = Arrays.asList(keys);
+        List<String> fields = new ArrayList<>();
+        List<Column> binders = new ArrayList<>();
+        for (Map.Entry<String, Column> entry : columns.entrySet())
+            if (!keyList.contains(entry.getKey())) {
+                fields.add(entry.getKey());
+                binders.add(entry.getValue());
+            }
+        if (fields.isEmpty()) throw new IOException("Fields can't be empty!");
+        Filters filters = new Filters();
+        for (String key : keys) {
+            filters.add(key, (Object) null);
+            binders.add(this.getColumn(key));
+        }
+        String sql = DmlSql.update(table, fields, Collections.nCopies(fields.size(), false), filters);
+        return this.executeBatch(sql, binders.toArray(new Column[0]), rows, connection, autoclose);
+    }
+
+    private int executeBatch(String sql, Column[] binders, List<? extends E> rows, Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        if (rows == null || rows.isEmpty()) return 0;
+        Connection conn = connection == null ? Connector.getConnection() : connection;
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            Deadline.apply(statement, 0);
+            int updateCount = 0, pending = 0;
+            for (int row = 0; row < rows.size(); row++) {
+                E entity = rows.get(row);
+                for (int i = 0; i < binders.length; i++) try {
+                    binders[i].bind(statement, i + 1, entity);
+                } catch (SQLException e) {
+                    String errorMsg = "Error setting '%s' parameter (row=%s) in statement! - %s";
+                    throw new SQLException(String.format(errorMsg, binders[i].name, row, e.getMessage()), e);
+                }
+                statement.addBatch();
+                if (++pending == BATCH_SIZE || row == rows.size() - 1) {
+                    for (int count : statement.executeBatch()) if (count > 0) updateCount += count;
+                    pending = 0;
+                }
+            }
+            return updateCount;
+        } catch (SQLException e) {
+            String msj = String.format("%s Batch:(%s)", e.getMessage(), sql);
+            throw new SQLException(msj, e);
+        } finally {
+            if (connection == null || autoclose != Autoclose.NO) try {
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static <E> RowEncoder<E> build(Class<E> type) {
+        Map<String, Column> columns = new LinkedHashMap<>();
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) hierarchy.add(0, c);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> c : hierarchy)
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+                try {
+                    field.setAccessible(true);
+                    MethodHandle getter = lookup.unreflectGetter(field);
+                    columns.put(field.getName(), RowEncoder.column(field.getName(), field.getType(), getter));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalStateException(String.format("Field '%s' of %s is not accessible!", field.getName(), type.getName()), e);
+                }
+            }
+        return new RowEncoder<>(type, columns);
+    }
+
+    private static Column column(String name, Class<?> fieldType, MethodHandle getter) {
+        if (fieldType.isPrimitive()) {
+            MethodHandle handle = getter.asType(MethodType.methodType(fieldType, Object.class));
+            if (fieldType == int.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setInt(index, (int) handle.invokeExact(entity));
+                }
+            };
+            if (fieldType == long.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setLong(index, (long) handle.invokeExact(entity));
+                }
+            };
+            if (fieldType == double.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setDouble(index, (double) handle.invokeExact(entity));
+                }
+            };
+            if (fieldType == float.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setFloat(index, (float) handle.invokeExact(entity));
+                }
+            };
+            if (fieldType == boolean.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setBoolean(index, (boolean) handle.invokeExact(entity));
+                }
+            };
+            if (fieldType == short.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setShort(index, (short) handle.invokeExact(entity));
+                }
+            };
+            if (fieldType == byte.class) return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setByte(index, (byte) handle.invokeExact(entity));
+                }
+            };
+            return new Column(name) {
+                @Override
+                void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                    statement.setString(index, String.valueOf((char) handle.invokeExact(entity)));
+                }
+            };
+        }
+        MethodHandle handle = getter.asType(MethodType.methodType(Object.class, Object.class));
+        int sqlType = RowEncoder.getSqlType(fieldType);
+        if (fieldType == Integer.class) return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                Object value = handle.invokeExact(entity);
+                if (value == null) statement.setNull(index, sqlType);
+                else statement.setInt(index, (Integer) value);
+            }
+        };
+        if (fieldType == Long.class) return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                Object value = handle.invokeExact(entity);
+                if (value == null) statement.setNull(index, sqlType);
+                else statement.setLong(index, (Long) value);
+            }
+        };
+        if (fieldType == Double.class)
+            return RowEncoder.column(name, handle, sqlType, (st, i, v) -> st.setDouble(i, (Double) v));
+        if (fieldType == Float.class)
+            return RowEncoder.column(name, handle, sqlType, (st, i, v) -> st.setFloat(i, (Float) v));
+        if (fieldType == Boolean.class)
+            return RowEncoder.column(name, handle, sqlType, (st, i, v) -> st.setBoolean(i, (Boolean) v));
+        if (fieldType == Short.class)
+            return RowEncoder.column(name, handle, Types.SMALLINT, (st, i, v) -> st.setShort(i, (Short) v));
+        if (fieldType == Byte.class)
+            return RowEncoder.column(name, handle, Types.TINYINT, (st, i, v) -> st.setByte(i, (Byte) v));
+        if (fieldType == Character.class)
+            return RowEncoder.column(name, handle, Types.CHAR, (st, i, v) -> st.setString(i, v.toString()));
+        if (fieldType.isEnum())
+            return RowEncoder.column(name, handle, Types.VARCHAR, (st, i, v) -> st.setString(i, ((Enum<?>) v).name()));
+        if (fieldType == java.sql.Date.class)
+            return RowEncoder.column(name, handle, Types.DATE, (st, i, v) -> st.setDate(i, (java.sql.Date) v));
+        if (fieldType == Time.class)
+            return RowEncoder.column(name, handle, Types.TIME, (st, i, v) -> st.setTime(i, (Time) v));
+        if (fieldType == java.util.Date.class)
+            return RowEncoder.column(name, handle, Types.TIMESTAMP, (st, i, v) -> st.setTimestamp(i, new Timestamp(((java.util.Date) v).getTime())));
+        if (fieldType == LocalDate.class)
+            return RowEncoder.column(name, handle, Types.DATE, (st, i, v) -> st.setDate(i, java.sql.Date.valueOf((LocalDate) v)));
+        if (fieldType == LocalTime.class)
+            return RowEncoder.column(name, handle, Types.TIME, (st, i, v) -> st.setTime(i, Time.valueOf((LocalTime) v)));
+        if (fieldType == LocalDateTime.class)
+            return RowEncoder.column(name, handle, Types.TIMESTAMP, (st, i, v) -> st.setTimestamp(i, Timestamp.valueOf((LocalDateTime) v)));
+        if (fieldType == String.class) return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                statement.setString(index, (String) (Object) handle.invokeExact(entity));
+            }
+        };
+        if (fieldType == BigDecimal.class) return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                statement.setBigDecimal(index, (BigDecimal) (Object) handle.invokeExact(entity));
+            }
+        };
+        if (fieldType == Timestamp.class) return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                statement.setTimestamp(index, (Timestamp) (Object) handle.invokeExact(entity));
+            }
+        };
+        return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                Object value = handle.invokeExact(entity);
+                if (value == null) statement.setNull(index, sqlType);
+                else new Parameter<>(value).registerIN(statement, index);
+            }
+        };
+    }
+
+    private static Column column(String name, MethodHandle handle, int sqlType, Setter setter) {
+        return new Column(name) {
+            @Override
+            void write(PreparedStatement statement, int index, Object entity) throws Throwable {
+                Object value = handle.invokeExact(entity);
+                if (value == null) statement.setNull(index, sqlType);
+                else setter.set(statement, index, value);
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int getSqlType(Class<?> fieldType) {
+        try {
+            return new Parameter(null, (Class) fieldType).getSqlType();
+        } catch (SQLException e) {
+            return Types.NULL;
+        }
+    }
+
+    private interface Setter {
+        void set(PreparedStatement statement, int index, Object value) throws SQLException;
+    }
+
+    private abstract static class Column {
+        private final String name;
+
+        private Column(String name) {
+            this.name = name;
+        }
+
+        abstract void write(PreparedStatement statement, int index, Object entity) throws Throwable;
+
+        private void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            try {
+                this.write(statement, index, entity);
+            } catch (SQLException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+        }
+    }
+}
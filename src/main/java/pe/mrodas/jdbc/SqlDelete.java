@@ -2,36 +2,52 @@ package pe.mrodas.jdbc;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import pe.mrodas.jdbc.helper.Autoclose;
-import pe.mrodas.jdbc.helper.InOperator;
+import pe.mrodas.jdbc.helper.Cancellation;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.DmlSql;
+import pe.mrodas.jdbc.helper.Filters;
+import pe.mrodas.jdbc.helper.Parameter;
 
 public class SqlDelete {
-    private final static String QUERY = "DELETE FROM <table> WHERE <filters>";
-    private final List<String> filters = new ArrayList<>();
-    private final Map<String, Object> filtersMap = new HashMap<>();
+    private final Filters filters = new Filters();
     private final String table;
     private String error;
+    private int timeout;
+    private final Cancellation cancellation = new Cancellation();
 
     public SqlDelete(String table) {
         this.table = table;
     }
 
+    /**
+     * @param seconds Timeout de la sentencia (0: sin timeout). Dentro de un {@link Deadline}
+     *                se usa el menor entre este valor y el tiempo restante
+     */
+    public SqlDelete setTimeout(int seconds) {
+        this.timeout = seconds;
+        return this;
+    }
+
+    /**
+     * Cancela la sentencia en ejecución desde otro hilo. Si aún no se ejecutó,
+     * fallará al ejecutarse.
+     */
+    public void cancel() throws SQLException {
+        cancellation.cancel();
+    }
+
     public SqlDelete addFilter(String name, Object value) {
         if (error != null) return this;
         if (name == null || name.trim().isEmpty())
             error = "Filter name can't be null or empty!";
         else if (value == null)
             error = String.format("Filter '%s' value can't be null!", name);
-        else {
-            this.filters.add(String.format("%s = :%s", name, name));
-            this.filtersMap.put(name, value);
-        }
+        else filters.add(name, value);
         return this;
     }
 
@@ -39,16 +55,8 @@ public class SqlDelete {
         if (error != null) return this;
         if (name == null || name.trim().isEmpty())
             error = "Parameter name can't be null or empty!";
-        else {
-            InOperator<T> inOperator = new InOperator<>(name, values);
-            if (inOperator.isInvalid())
-                error = String.format("Parameter list '%s' can't be null or empty!", name);
-            else {
-                String filter = String.format("%s IN (%s)", name, inOperator.getFields());
-                filters.add(filter);
-                inOperator.getParameters().forEach(filtersMap::put);
-            }
-        }
+        else if (!filters.add(name, values))
+            error = String.format("Parameter list '%s' can't be null or empty!", name);
         return this;
     }
 
@@ -56,17 +64,54 @@ public class SqlDelete {
         return this.execute(null, null);
     }
 
-    public int execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+    private String getQuery() throws IOException {
         if (table == null) throw new IOException("Table name can't be null!");
-        if (filters.isEmpty()) error = "Filters can't be empty!";
+        if (error == null && filters.isEmpty()) error = "Filters can't be empty!";
         if (error != null) throw new IOException(error);
-        SqlQuery<?> sqlQuery = (connection == null ? new SqlQuery<>()
-                : new SqlQuery<>(connection, autoclose == null ? Autoclose.YES : autoclose));
-        String preparedQuery = QUERY.replace("<table>", table)
-                .replace("<filters>", String.join(" AND ", filters));
-        sqlQuery.setSql(preparedQuery);
-        this.filtersMap.forEach(sqlQuery::addParameter);
-        return sqlQuery.execute();
+        return DmlSql.delete(table, filters);
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    String getBatchSql() throws IOException {
+        return this.getQuery();
+    }
+
+    private void registerParameters(PreparedStatement statement) throws SQLException {
+        List<Object> values = filters.getValues();
+        int pos = 0;
+        try {
+            for (Object value : values) new Parameter<>(value).registerIN(statement, ++pos);
+        } catch (SQLException e) {
+            String errorMsg = "Error setting '%s' parameter in statement! - %s";
+            throw new SQLException(String.format(errorMsg, filters.getNameAt(pos - 1), e.getMessage()), e);
+        }
+    }
+
+    void addBatch(PreparedStatement statement) throws SQLException {
+        this.registerParameters(statement);
+        statement.addBatch();
+    }
+
+    public int execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        String preparedQuery = this.getQuery();
+        Connection conn = connection == null ? Connector.getConnection() : connection;
+        try (PreparedStatement statement = cancellation.start(conn.prepareStatement(preparedQuery), timeout)) {
+            this.registerParameters(statement);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            String msj = String.format("%s Query:(%s)", e.getMessage(), preparedQuery);
+            throw new SQLException(msj, e);
+        } finally {
+            cancellation.finish();
+            if (connection == null || autoclose != Autoclose.NO) try {
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
 }
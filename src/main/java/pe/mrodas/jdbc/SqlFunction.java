@@ -6,23 +6,51 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import pe.mrodas.jdbc.helper.Cancellation;
 import pe.mrodas.jdbc.helper.CursorIterator;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.Dialect;
 import pe.mrodas.jdbc.helper.Parameter;
 import pe.mrodas.jdbc.helper.ThrowingBiFunction;
 
 public class SqlFunction<T> {
     private final static String QUERY = "SELECT <function>(<parameters>) value";
+    public final static int MAX_ROWS = 500;
+    /**
+     * Parámetros por sentencia, por debajo del límite de SQL Server (2100)
+     */
+    private final static int MAX_PARAMETERS = 2000;
     private final List<Object> parameters = new ArrayList<>();
     private final String functionName;
     private String error;
+    private int timeout;
+    private final Cancellation cancellation = new Cancellation();
 
     public SqlFunction(String functionName) {
         this.functionName = functionName;
     }
 
+    /**
+     * @param seconds Timeout de la sentencia (0: sin timeout). Dentro de un {@link Deadline}
+     *                se usa el menor entre este valor y el tiempo restante
+     */
+    public SqlFunction<T> setTimeout(int seconds) {
+        this.timeout = seconds;
+        return this;
+    }
+
+    /**
+     * Cancela la sentencia en ejecución desde otro hilo. Si aún no se ejecutó,
+     * fallará al ejecutarse.
+     */
+    public void cancel() throws SQLException {
+        cancellation.cancel();
+    }
+
     public SqlFunction<T> addParameter(Object parameter) {
         if (error != null) return this;
         if (parameter == null)
@@ -43,30 +71,129 @@ public class SqlFunction<T> {
         String preparedQuery = QUERY.replace("<function>", functionName)
                 .replace("<parameters>", String.join(", ", params));
         Connection conn = connection == null ? Connector.getConnection() : connection;
-        PreparedStatement statement = conn.prepareStatement(preparedQuery);
-        CursorIterator iterator = new CursorIterator(numParameters);
         try {
-            for (Integer pos : iterator)
-                new Parameter<>(parameters.get(pos))
-                        .registerIN(statement, pos + 1);
-        } catch (SQLException e) {
-            String name = String.format("#%s", iterator.getPos() + 1);
-            String msg = String.format("Error setting '%s' parameter in statement! - ", name);
-            throw new SQLException(msg + e.getMessage(), e);
-        }
-        statement.execute();
-        ResultSet rs = statement.getResultSet();
-        if (rs.next()) try {
-            return mapper.apply(rs, "value");
-        } catch (Exception e) {
-            throw new IOException("Mapping Error: " + e.getMessage(), e);
+            PreparedStatement statement = cancellation.start(conn.prepareStatement(preparedQuery), timeout);
+            CursorIterator iterator = new CursorIterator(numParameters);
+            try {
+                for (Integer pos : iterator)
+                    new Parameter<>(parameters.get(pos))
+                            .registerIN(statement, pos + 1);
+            } catch (SQLException e) {
+                String name = String.format("#%s", iterator.getPos() + 1);
+                String msg = String.format("Error setting '%s' parameter in statement! - ", name);
+                throw new SQLException(msg + e.getMessage(), e);
+            }
+            statement.execute();
+            ResultSet rs = statement.getResultSet();
+            if (rs.next()) try {
+                return mapper.apply(rs, "value");
+            } catch (Exception e) {
+                throw new IOException("Mapping Error: " + e.getMessage(), e);
+            }
+            return null;
         } finally {
+            cancellation.finish();
             try {
                 conn.close();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
         }
-        return null;
+    }
+
+    public List<T> executeBatch(List<Object[]> arguments, ThrowingBiFunction<ResultSet, String, T> mapper) throws IOException, SQLException {
+        return this.executeBatch(null, arguments, mapper);
+    }
+
+    /**
+     * Evalúa la función para cada tupla de argumentos con una sola sentencia por cada
+     * {@link #MAX_ROWS} tuplas: <code>SELECT 0 idx, fn(?, ?) val UNION ALL SELECT 1, fn(?, ?) ...</code>
+     * en MySQL, PostgreSQL, H2, SQL Server y Oracle (con FROM DUAL). En otras bases de datos se
+     * ejecuta una tupla por sentencia, reutilizando la sentencia preparada.
+     * Los parámetros agregados con {@link #addParameter(Object)} no se usan.
+     *
+     * @param arguments Tuplas de argumentos, todas del mismo tamaño. Se permiten nulos
+     * @param mapper    Recibe el ResultSet y la columna "val"
+     * @return Resultados en el mismo orden de las tuplas
+     */
+    public List<T> executeBatch(Connection connection, List<Object[]> arguments, ThrowingBiFunction<ResultSet, String, T> mapper) throws IOException, SQLException {
+        if (functionName == null) throw new IOException("Function name can't be null!");
+        if (arguments == null) throw new IOException("Arguments can't be null!");
+        if (arguments.isEmpty()) return new ArrayList<>();
+        int numParameters = arguments.get(0) == null ? 0 : arguments.get(0).length;
+        for (int i = 0; i < arguments.size(); i++) {
+            int length = arguments.get(i) == null ? 0 : arguments.get(i).length;
+            if (length != numParameters)
+                throw new IOException(String.format("Arguments #%s has %s values, expected %s!", i, length, numParameters));
+        }
+        Object[] results = new Object[arguments.size()];
+        Connection conn = connection == null ? Connector.getConnection() : connection;
+        PreparedStatement statement = null;
+        try {
+            Dialect dialect = Dialect.of(conn);
+            int chunk = SqlFunction.getChunkSize(dialect, numParameters), prepared = 0;
+            String preparedQuery = null;
+            for (int row = 0; row < arguments.size(); row += chunk) {
+                int rows = Math.min(chunk, arguments.size() - row);
+                if (rows != prepared) {
+                    if (statement != null) statement.close();
+                    preparedQuery = SqlFunction.getBatchSql(dialect, functionName, rows, numParameters);
+                    statement = cancellation.start(conn.prepareStatement(preparedQuery), timeout);
+                    prepared = rows;
+                }
+                this.executeRows(statement, preparedQuery, arguments, row, rows, numParameters, results, mapper);
+            }
+        } finally {
+            cancellation.finish();
+            if (statement != null) try {
+                statement.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            if (connection == null) try {
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * @return Tuplas por sentencia: una si no se sabe cómo la base de datos acepta un SELECT sin tabla
+     */
+    static int getChunkSize(Dialect dialect, int numParameters) {
+        if (dialect == Dialect.OTHER) return 1;
+        return Math.max(1, Math.min(MAX_ROWS, MAX_PARAMETERS / Math.max(1, numParameters)));
+    }
+
+    static String getBatchSql(Dialect dialect, String functionName, int rows, int numParameters) {
+        String call = String.format("%s(%s) val%s", functionName, String.join(", ", Collections.nCopies(numParameters, "?")),
+                dialect == Dialect.ORACLE ? " FROM DUAL" : "");
+        StringBuilder sql = new StringBuilder("SELECT 0 idx, ").append(call);
+        for (int i = 1; i < rows; i++) sql.append(" UNION ALL SELECT ").append(i).append(", ").append(call);
+        return sql.toString();
+    }
+
+    private void executeRows(PreparedStatement statement, String preparedQuery, List<Object[]> arguments, int fromRow, int rows, int numParameters, Object[] results, ThrowingBiFunction<ResultSet, String, T> mapper) throws IOException, SQLException {
+        int index = 0;
+        for (int row = fromRow; row < fromRow + rows; row++)
+            for (int pos = 0; pos < numParameters; pos++) try {
+                new Parameter<>(arguments.get(row)[pos]).registerIN(statement, ++index, preparedQuery);
+            } catch (SQLException e) {
+                String msg = String.format("Error setting '#%s' parameter (row=%s) in statement! - ", pos + 1, row);
+                throw new SQLException(msg + e.getMessage(), e);
+            }
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) try {
+                results[fromRow + rs.getInt("idx")] = mapper.apply(rs, "val");
+            } catch (SQLException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Mapping Error: " + e.getMessage(), e);
+            }
+        }
     }
 }
@@ -8,25 +8,28 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
 import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.Cancellation;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.DmlSql;
+import pe.mrodas.jdbc.helper.MetadataCache;
 import pe.mrodas.jdbc.helper.Parameter;
 import pe.mrodas.jdbc.helper.SqlDML;
 import pe.mrodas.jdbc.helper.TableIterator;
 
 public class SqlInsert implements SqlDML {
 
-    private final static String QUERY = "INSERT INTO <table> (<fields>) VALUES (<values>)";
     private final Map<String, List<Parameter<?>>> valueListMap = new HashMap<>();
     private final String table;
     private final Consumer<Integer> setterId;
     private String error;
-    private int totalRows;
+    private int totalRows, timeout;
+    private final Cancellation cancellation = new Cancellation();
 
     public SqlInsert(String table) {
         this(table, null);
@@ -37,26 +40,63 @@ public class SqlInsert implements SqlDML {
         this.setterId = setterId;
     }
 
+    /**
+     * @param seconds Timeout de la sentencia (0: sin timeout). Dentro de un {@link Deadline}
+     *                se usa el menor entre este valor y el tiempo restante
+     */
+    public SqlInsert setTimeout(int seconds) {
+        this.timeout = seconds;
+        return this;
+    }
+
+    /**
+     * Cancela la sentencia en ejecución desde otro hilo. Si aún no se ejecutó,
+     * fallará al ejecutarse.
+     */
+    public void cancel() throws SQLException {
+        cancellation.cancel();
+    }
+
+    /**
+     * Un valor nulo se registra con el tipo de la columna según {@link MetadataCache}
+     */
     @Override
     public SqlInsert addField(String name, Object value) {
-        return this.addField(name, new Parameter<>(value), false);
+        return this.addField(name, new Parameter<>(value));
     }
 
     public SqlInsert addField(String name, Object value, JDBCType type) {
-        return this.addField(name, new Parameter<>(value, type), true);
+        return this.addField(name, new Parameter<>(value, type));
     }
 
     public <P> SqlInsert addField(String name, P value, Class<P> objClass) {
-        return this.addField(name, new Parameter<>(value, objClass), true);
+        return this.addField(name, new Parameter<>(value, objClass));
+    }
+
+    /**
+     * Agrega como valor del campo el siguiente id del allocator, asignado en el cliente
+     * para que las filas puedan enviarse en batch sin RETURN_GENERATED_KEYS
+     *
+     * @param setter Recibe el id asignado (ej: entity::setId). Puede ser null
+     */
+    public SqlInsert addId(String name, IdAllocator allocator, Consumer<Long> setter) {
+        if (error != null) return this;
+        long id;
+        try {
+            id = allocator.next();
+        } catch (IOException | SQLException e) {
+            error = String.format("Error allocating '%s' id: %s", name, e.getMessage());
+            return this;
+        }
+        if (setter != null) setter.accept(id);
+        return this.addField(name, new Parameter<>(id));
     }
 
-    private SqlInsert addField(String name, Parameter<?> parameter, boolean allowNull) {
+    private SqlInsert addField(String name, Parameter<?> parameter) {
         if (error != null) return this;
         if (name == null || name.trim().isEmpty())
             error = "Field name can't be null or empty!";
-        else if (!allowNull && parameter.valueIsNull()) {
-            error = String.format("'%s' value is null but lacks JdbcType or Class<> definition in SqlInsert.addFieldMethod!", name);
-        } else {
+        else {
             if (!valueListMap.containsKey(name)) valueListMap.put(name, new ArrayList<>());
             valueListMap.get(name).add(parameter);
         }
@@ -64,30 +104,39 @@ public class SqlInsert implements SqlDML {
     }
 
     private String getPreparedQuery(List<String> fieldNames) {
-        List<String> questionMarks = Collections.nCopies(fieldNames.size(), "?");
-        return QUERY.replace("<table>", table)
-                .replace("<fields>", String.join(", ", fieldNames))
-                .replace("<values>", String.join(", ", questionMarks));
+        return DmlSql.insert(table, fieldNames);
     }
 
     private PreparedStatement getPreparedStatement(Connection conn, String preparedQuery) throws SQLException {
-        return this.setterId == null
+        PreparedStatement statement = this.setterId == null
                 ? conn.prepareStatement(preparedQuery)
                 : conn.prepareStatement(preparedQuery, Statement.RETURN_GENERATED_KEYS);
+        return cancellation.start(statement, timeout);
     }
 
     public void executeStatement(PreparedStatement statement, List<String> fieldNames) throws SQLException {
+        this.bindRows(statement, fieldNames, totalRows > 1);
+        if (totalRows > 1) statement.executeBatch();
+        else statement.execute();
+    }
+
+    private void bindRows(PreparedStatement statement, List<String> fieldNames, boolean batch) throws SQLException {
         TableIterator iterator = new TableIterator(totalRows, fieldNames.size());
+        Integer[] columnTypes = new Integer[fieldNames.size()];
         try {
             for (Integer row : iterator.getRowIterator()) {
                 for (Integer col : iterator.getColIterator().reset()) {
                     String name = fieldNames.get(col);
                     Parameter<?> parameter = valueListMap.get(name).get(row);
-                    if (parameter.valueIsNull())
-                        statement.setNull(col + 1, parameter.getSqlType());
-                    else parameter.registerIN(statement, col + 1);
+                    if (!parameter.valueIsNull()) parameter.registerIN(statement, col + 1);
+                    else if (parameter.isTyped()) statement.setNull(col + 1, parameter.getSqlType());
+                    else {
+                        if (columnTypes[col] == null)
+                            columnTypes[col] = MetadataCache.getColumnType(statement.getConnection(), table, name);
+                        statement.setNull(col + 1, columnTypes[col]);
+                    }
                 }
-                if (totalRows > 1) statement.addBatch();
+                if (batch) statement.addBatch();
             }
         } catch (SQLException e) {
             if (!iterator.getColIterator().hasNext()) throw e;
@@ -96,8 +145,6 @@ public class SqlInsert implements SqlDML {
             String error = String.format(errorMsg, this.table, name, iterator.getPosRow(), e.getMessage());
             throw new SQLException(error, e);
         }
-        if (totalRows > 1) statement.executeBatch();
-        else statement.execute();
     }
 
     public int execute() throws IOException, SQLException {
@@ -117,17 +164,41 @@ public class SqlInsert implements SqlDML {
         return error;
     }
 
-    public int execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+    private void validate() throws IOException {
         if (table == null) throw new IOException("Table name can't be null!");
-        if (valueListMap.isEmpty()) error = "Fields can't be empty!";
+        if (error == null && valueListMap.isEmpty()) error = "Fields can't be empty!";
         error = this.checkNumRows();
         if (error != null) throw new IOException(error);
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    boolean returnsGeneratedKeys() {
+        return setterId != null;
+    }
+
+    /**
+     * @return Query para agregar las filas a un batch con {@link #addBatch(PreparedStatement)}
+     */
+    String getBatchSql() throws IOException {
+        this.validate();
+        return this.getPreparedQuery(new ArrayList<>(valueListMap.keySet()));
+    }
+
+    void addBatch(PreparedStatement statement) throws SQLException {
+        this.bindRows(statement, new ArrayList<>(valueListMap.keySet()), true);
+    }
+
+    public int execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        this.validate();
         Connection conn = connection == null ? Connector.getConnection() : connection;
-        List<String> fieldNames = new ArrayList<>(valueListMap.keySet());
-        String preparedQuery = this.getPreparedQuery(fieldNames);
-        PreparedStatement statement = this.getPreparedStatement(conn, preparedQuery);
-        this.executeStatement(statement, fieldNames);
         try {
+            List<String> fieldNames = new ArrayList<>(valueListMap.keySet());
+            String preparedQuery = this.getPreparedQuery(fieldNames);
+            PreparedStatement statement = this.getPreparedStatement(conn, preparedQuery);
+            this.executeStatement(statement, fieldNames);
             if (setterId == null) return statement.getUpdateCount();
             ResultSet rs = statement.getGeneratedKeys();
             if (rs.next()) {
@@ -137,6 +208,7 @@ public class SqlInsert implements SqlDML {
             }
             throw new SQLException("Error getting autogenerated key!");
         } finally {
+            cancellation.finish();
             this.close(conn, autoclose == null ? Autoclose.YES : autoclose);
         }
     }
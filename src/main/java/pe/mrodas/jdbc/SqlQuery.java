@@ -9,19 +9,20 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import pe.mrodas.jdbc.helper.Autoclose;
 import pe.mrodas.jdbc.helper.GeneratedKeys;
 import pe.mrodas.jdbc.helper.InOperator;
 import pe.mrodas.jdbc.helper.Parameter;
+import pe.mrodas.jdbc.helper.ParsedSql;
 import pe.mrodas.jdbc.helper.SqlStatement;
 
 public class SqlQuery<T> extends SqlStatement<T> {
 
     private GeneratedKeys generatedKeys;
     private String query, preparedQuery;
+    private ParsedSql parsedSql;
     private List<String> parametersInQuery = new ArrayList<>();
     private final HashMap<String, Object> parameters = new HashMap<>();
     private final HashMap<String, String> inReplacement = new HashMap<>();
@@ -37,10 +38,41 @@ public class SqlQuery<T> extends SqlStatement<T> {
 
     public SqlQuery<T> setSql(String sql, GeneratedKeys generatedKeys) {
         this.query = sql;
+        this.parsedSql = null;
         this.generatedKeys = generatedKeys;
         return this;
     }
 
+    /**
+     * Usa una consulta ya analizada (ej: de {@link QueryRegistry}),
+     * evitando volver a procesar el texto en cada ejecución.
+     */
+    public SqlQuery<T> setSql(ParsedSql sql, GeneratedKeys generatedKeys) {
+        this.setSql(sql == null ? null : sql.getQuery(), generatedKeys);
+        this.parsedSql = sql;
+        return this;
+    }
+
+    public SqlQuery<T> setSql(ParsedSql sql) {
+        return this.setSql(sql, GeneratedKeys.NO_RETURN);
+    }
+
+    /**
+     * Analiza la consulta una sola vez y devuelve una plantilla inmutable que
+     * puede compartirse entre hilos y ejecutarse muchas veces
+     */
+    public static <T> SqlTemplate<T> compile(String sql) {
+        return SqlQuery.compile(ParsedSql.parse(sql), GeneratedKeys.NO_RETURN);
+    }
+
+    public static <T> SqlTemplate<T> compile(String sql, GeneratedKeys generatedKeys) {
+        return SqlQuery.compile(ParsedSql.parse(sql), generatedKeys);
+    }
+
+    public static <T> SqlTemplate<T> compile(ParsedSql sql, GeneratedKeys generatedKeys) {
+        return new SqlTemplate<>(sql, generatedKeys);
+    }
+
     public SqlQuery<T> setSql(String[] sql, GeneratedKeys generatedKeys) {
         return this.setSql(String.join(" ", sql), generatedKeys);
     }
@@ -53,19 +85,31 @@ public class SqlQuery<T> extends SqlStatement<T> {
         return this.setSql(String.join(" ", sql), GeneratedKeys.NO_RETURN);
     }
 
+    @Override
+    public SqlQuery<T> setTimeout(int seconds) {
+        super.setTimeout(seconds);
+        return this;
+    }
+
+    @Override
+    public SqlQuery<T> setFetchSize(int rows) {
+        super.setFetchSize(rows);
+        return this;
+    }
+
     /**
      * Agrega un nuevo parámetro definido con la sintaxis ":parameter"
      *
      * @param name  Nombre del parámetro. Sin ":" (key)
-     * @param value Valor del parámetro (value)
+     * @param value Valor del parámetro (value). Si es null se registra con el tipo
+     *              del parámetro según {@link pe.mrodas.jdbc.helper.MetadataCache}
+     *              (un <code>null</code> literal debe pasarse como <code>(Object) null</code>)
      * @return El mismo objeto SqlQuery
      */
     public SqlQuery<T> addParameter(String name, Object value) {
         if (error != null) return this;
         if (name == null || name.trim().isEmpty())
             error = "Parameter name can't be null or empty!";
-        else if (value == null)
-            error = String.format("Parameter '%s' value can't be null!", name);
         else parameters.put(name, value);
         return this;
     }
@@ -104,33 +148,37 @@ public class SqlQuery<T> extends SqlStatement<T> {
         return new SQLException(msj, e);
     }
 
-    private String getPreparedQuery() throws IOException {
+    private String getPreparedQuery(Connection connection) throws IOException, SQLException {
         if (query == null || query.trim().isEmpty())
             throw new IOException("Query can't be null or empty!");
         if (error != null) throw new IOException(error);
-        this.inReplacement.forEach((key, fields) -> query = query.replace(key, fields));
-        Matcher matcher = Pattern.compile(":\\w+").matcher(query);
-        while (matcher.find()) {
-            String paramNameInQuery = matcher.group().substring(1);
-            if (parameters.containsKey(paramNameInQuery))
-                parametersInQuery.add(paramNameInQuery);
-            else throw new IOException(String.format("Missing parameter '%s'!", paramNameInQuery));
+        ParsedSql parsed = parsedSql;
+        if (parsed == null || !inReplacement.isEmpty()) {
+            String replaced = query;
+            for (Map.Entry<String, String> entry : inReplacement.entrySet())
+                replaced = replaced.replace(entry.getKey(), entry.getValue());
+            parsed = ParsedSql.parse(replaced);
         }
-        return query.replaceAll(":\\w+", "?");
+        parsed = parsed.withDialect(connection);
+        for (String paramNameInQuery : parsed.getNames())
+            if (!parameters.containsKey(paramNameInQuery))
+                throw new IOException(String.format("Missing parameter '%s'!", paramNameInQuery));
+        parametersInQuery = parsed.getNames();
+        return parsed.getSql();
     }
 
     @Override
     protected PreparedStatement executeStatement() throws SQLException, IOException {
-        preparedQuery = preparedQuery == null ? this.getPreparedQuery() : preparedQuery;
         Connection connection = super.getConnection();
-        PreparedStatement statement = generatedKeys == GeneratedKeys.RETURN
+        preparedQuery = preparedQuery == null ? this.getPreparedQuery(connection) : preparedQuery;
+        PreparedStatement statement = super.prepare(generatedKeys == GeneratedKeys.RETURN
                 ? connection.prepareStatement(preparedQuery, Statement.RETURN_GENERATED_KEYS)
-                : connection.prepareStatement(preparedQuery);
+                : connection.prepareStatement(preparedQuery), preparedQuery);
         Parameter.Position position = new Parameter.Position(0);
         try {
             for (String name : parametersInQuery) {
                 position.setName(name);
-                new Parameter<>(parameters.get(name)).registerIN(statement, position.incrementAndGet());
+                new Parameter<>(parameters.get(name)).registerIN(statement, position.incrementAndGet(), preparedQuery);
             }
         } catch (SQLException e) {
             String errorMsg = "Error setting '%s' parameter in statement! - %s";
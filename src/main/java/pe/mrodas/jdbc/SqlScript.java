@@ -0,0 +1,206 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.Dialect;
+import pe.mrodas.jdbc.helper.SqlString;
+
+/**
+ * Runs a multi-statement script, such as a migration, split with {@link SqlString#getStatements(Dialect)}:
+ * <pre>
+ * {@code
+ * SqlScript script = new SqlScript(new SqlString("db/V2__orders.sql"), Dialect.MYSQL);
+ * script.executeBatch();
+ * for (SqlScript.Result result : script.getResults()) ...
+ * }</pre>
+ * {@link #execute()} sends one statement at a time and measures each one.
+ * {@link #executeBatch()} sends all of them as one JDBC batch (one round-trip on drivers that
+ * pipeline batches), so only the total time is known; a batch can't contain queries.
+ * Both stop at the first failure and throw it, keeping the results of the statements that
+ * ran. Some drivers (H2, MySQL) keep running a batch after a failed statement, so run it
+ * in a transaction when a failure must leave no changes. Statements run with the
+ * connection's auto-commit setting.
+ *
+ * @author Marco Rodas
+ */
+public class SqlScript {
+
+    private final List<String> statements;
+    private final List<Result> results = new ArrayList<>();
+    private int timeout;
+
+    /**
+     * Separa el script con SQL estándar, donde "\" no escapa comillas
+     */
+    public SqlScript(SqlString script) {
+        this(script, Dialect.OTHER);
+    }
+
+    /**
+     * @param dialect Define si "\" escapa comillas al separar el script (ej: MySQL)
+     */
+    public SqlScript(SqlString script, Dialect dialect) {
+        this.statements = script == null ? null : script.getStatements(dialect);
+    }
+
+    public SqlScript(List<String> statements) {
+        this.statements = statements;
+    }
+
+    /**
+     * @param seconds Timeout de cada sentencia (0: sin timeout). Dentro de un {@link Deadline}
+     *                se usa el menor entre este valor y el tiempo restante
+     */
+    public SqlScript setTimeout(int seconds) {
+        this.timeout = seconds;
+        return this;
+    }
+
+    public List<String> getStatements() {
+        return statements == null ? Collections.emptyList() : Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * @return Resultados de las sentencias ejecutadas con éxito en la última ejecución
+     */
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    public List<Result> execute() throws IOException, SQLException {
+        return this.execute(null, null);
+    }
+
+    /**
+     * Ejecuta las sentencias una por una
+     */
+    public List<Result> execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        this.validate();
+        Connection conn = connection == null ? Connector.getConnection() : connection;
+        try (Statement statement = conn.createStatement()) {
+            for (int i = 0; i < statements.size(); i++) {
+                String sql = statements.get(i);
+                Deadline.apply(statement, timeout);
+                long start = System.nanoTime();
+                try {
+                    boolean isQuery = statement.execute(sql);
+                    int updateCount = isQuery ? -1 : statement.getUpdateCount();
+                    results.add(new Result(i, sql, updateCount, System.nanoTime() - start));
+                } catch (SQLException e) {
+                    throw SqlScript.buildException(i, sql, e);
+                }
+            }
+            return this.getResults();
+        } finally {
+            this.close(connection, conn, autoclose);
+        }
+    }
+
+    public List<Result> executeBatch() throws IOException, SQLException {
+        return this.executeBatch(null, null);
+    }
+
+    /**
+     * Ejecuta las sentencias en un solo batch. Cada resultado tiene el tiempo total del batch.
+     */
+    public List<Result> executeBatch(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        this.validate();
+        Connection conn = connection == null ? Connector.getConnection() : connection;
+        try (Statement statement = conn.createStatement()) {
+            Deadline.apply(statement, timeout);
+            for (String sql : statements) statement.addBatch(sql);
+            long start = System.nanoTime();
+            int[] updateCounts;
+            SQLException error = null;
+            try {
+                updateCounts = statement.executeBatch();
+            } catch (BatchUpdateException e) {
+                updateCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                error = e;
+            }
+            long elapsed = System.nanoTime() - start;
+            for (int i = 0; i < updateCounts.length && i < statements.size(); i++) {
+                if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                    SQLException cause = error == null ? new SQLException("Statement failed in batch!") : error;
+                    throw SqlScript.buildException(i, statements.get(i), cause);
+                }
+                results.add(new Result(i, statements.get(i), updateCounts[i], elapsed));
+            }
+            if (error != null) {
+                int failed = results.size();
+                throw failed < statements.size() ? SqlScript.buildException(failed, statements.get(failed), error) : error;
+            }
+            return this.getResults();
+        } finally {
+            this.close(connection, conn, autoclose);
+        }
+    }
+
+    private void validate() throws IOException {
+        if (statements == null || statements.isEmpty()) throw new IOException("Statements can't be empty!");
+        results.clear();
+    }
+
+    private static SQLException buildException(int index, String sql, SQLException e) {
+        String msj = String.format("Statement #%s failed: %s Script:(%s)", index + 1, e.getMessage(), sql);
+        return new SQLException(msj, e.getSQLState(), e.getErrorCode(), e);
+    }
+
+    private void close(Connection connection, Connection conn, Autoclose autoclose) {
+        if (connection == null || autoclose != Autoclose.NO) try {
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static class Result {
+        private final int index, updateCount;
+        private final String sql;
+        private final long nanos;
+
+        private Result(int index, String sql, int updateCount, long nanos) {
+            this.index = index;
+            this.sql = sql;
+            this.updateCount = updateCount;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return Posición de la sentencia en el script, desde 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return Filas afectadas, -1 si la sentencia devolvió un ResultSet o
+         * {@link Statement#SUCCESS_NO_INFO} si el driver no lo informa
+         */
+        public int getUpdateCount() {
+            return updateCount;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%s: %s rows in %.3f ms", index + 1, updateCount, nanos / 1e6);
+        }
+    }
+}
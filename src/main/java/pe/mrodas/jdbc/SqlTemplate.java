@@ -0,0 +1,205 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.GeneratedKeys;
+import pe.mrodas.jdbc.helper.Parameter;
+import pe.mrodas.jdbc.helper.ParsedSql;
+import pe.mrodas.jdbc.helper.SqlStatement;
+
+/**
+ * Immutable query compiled once with {@link SqlQuery#compile(String)} and shared by any number
+ * of threads. Each execution only fills an array-backed {@link Params} and binds it:
+ * <pre>
+ * {@code
+ * static final SqlTemplate<User> BY_ID = SqlQuery.compile("SELECT * FROM user WHERE id = :id");
+ * static final int ID = BY_ID.indexOf("id");
+ *
+ * User user = BY_ID.bind(BY_ID.params().set(ID, 5)).execute(User::new, User::map);
+ * }</pre>
+ * A parameter repeated in the query is set once. IN lists change the query shape, so
+ * they aren't supported; use {@link SqlQuery#addParameter(String, List)} for them.
+ *
+ * @author Marco Rodas
+ */
+public final class SqlTemplate<T> {
+
+    private final static Object UNSET = new Object();
+    private final ParsedSql parsedSql;
+    private final GeneratedKeys generatedKeys;
+    private final List<String> names;
+    private final Map<String, Integer> indexes;
+    private final int[] slots;
+
+    SqlTemplate(ParsedSql parsedSql, GeneratedKeys generatedKeys) {
+        this.parsedSql = parsedSql;
+        this.generatedKeys = generatedKeys;
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> occurrences = parsedSql.getNames();
+        this.slots = new int[occurrences.size()];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = indexes.computeIfAbsent(occurrences.get(i), name -> {
+                names.add(name);
+                return names.size() - 1;
+            });
+        this.names = Collections.unmodifiableList(names);
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return Índices de los parámetros de una consulta analizada para otro dialecto, en orden de aparición
+     */
+    private int[] getSlots(ParsedSql parsed) throws IOException {
+        List<String> occurrences = parsed.getNames();
+        int[] dialectSlots = new int[occurrences.size()];
+        for (int i = 0; i < dialectSlots.length; i++) {
+            Integer index = indexes.get(occurrences.get(i));
+            if (index == null) throw new IOException(String.format("Missing parameter '%s'!", occurrences.get(i)));
+            dialectSlots[i] = index;
+        }
+        return dialectSlots;
+    }
+
+    /**
+     * @return Índice del parámetro para {@link Params#set(int, Object)}
+     * @throws IllegalArgumentException Si el parámetro no está en la consulta
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        if (index == null) throw new IllegalArgumentException(String.format("Parameter '%s' not found in query!", name));
+        return index;
+    }
+
+    /**
+     * @return Nombres de los parámetros, sin repetir, en el orden de {@link #indexOf(String)}
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    public String getSql() {
+        return parsedSql.getSql();
+    }
+
+    public Params params() {
+        return new Params(this);
+    }
+
+    /**
+     * @return Ejecución de un solo uso con una conexión propia que se cierra al terminar
+     */
+    public Execution<T> bind(Params params) {
+        return new Execution<>(this, params, null, Autoclose.YES);
+    }
+
+    public Execution<T> bind(Params params, Connection connection, Autoclose autoclose) {
+        return new Execution<>(this, params, connection, autoclose);
+    }
+
+    /**
+     * Valores de los parámetros de una ejecución. No es thread-safe.
+     */
+    public static final class Params {
+        private final SqlTemplate<?> template;
+        private final Object[] values;
+
+        private Params(SqlTemplate<?> template) {
+            this.template = template;
+            this.values = new Object[template.names.size()];
+            Arrays.fill(values, UNSET);
+        }
+
+        public Params set(int index, Object value) {
+            values[index] = value;
+            return this;
+        }
+
+        public Params set(String name, Object value) {
+            return this.set(template.indexOf(name), value);
+        }
+    }
+
+    public static final class Execution<T> extends SqlStatement<T> {
+        private final SqlTemplate<T> template;
+        private final Object[] values;
+
+        private Execution(SqlTemplate<T> template, Params params, Connection connection, Autoclose autoclose) {
+            super(connection, autoclose);
+            if (params.template != template)
+                throw new IllegalArgumentException("Params were created by another template!");
+            this.template = template;
+            this.values = params.values.clone();
+        }
+
+        @Override
+        public Execution<T> setTimeout(int seconds) {
+            super.setTimeout(seconds);
+            return this;
+        }
+
+        @Override
+        public Execution<T> setFetchSize(int rows) {
+            super.setFetchSize(rows);
+            return this;
+        }
+
+        @Override
+        protected SQLException buildCallableException(SQLException e) {
+            String msj = String.format("%s Query:(%s)", e.getMessage(), template.parsedSql.getQuery());
+            return new SQLException(msj, e);
+        }
+
+        @Override
+        protected PreparedStatement executeStatement() throws IOException, SQLException {
+            Connection connection = super.getConnection();
+            ParsedSql parsed = template.parsedSql.withDialect(connection);
+            int[] slots = parsed == template.parsedSql ? template.slots : template.getSlots(parsed);
+            for (int slot : slots)
+                if (values[slot] == UNSET)
+                    throw new IOException(String.format("Missing parameter '%s'!", template.names.get(slot)));
+            String sql = parsed.getSql();
+            PreparedStatement statement = super.prepare(template.generatedKeys == GeneratedKeys.RETURN
+                    ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(sql), sql);
+            for (int i = 0; i < slots.length; i++) try {
+                new Parameter<>(values[slots[i]]).registerIN(statement, i + 1, sql);
+            } catch (SQLException e) {
+                String errorMsg = "Error setting '%s' parameter in statement! - %s";
+                throw new SQLException(String.format(errorMsg, template.names.get(slots[i]), e.getMessage()), e);
+            }
+            statement.execute();
+            return statement;
+        }
+
+        /**
+         * @return Update count, o el primer ID autogenerado si se compiló con GeneratedKeys.RETURN
+         */
+        public int execute() throws IOException, SQLException {
+            try {
+                if (template.generatedKeys != GeneratedKeys.RETURN)
+                    return this.executeStatement().getUpdateCount();
+                ResultSet rs = this.executeStatement().getGeneratedKeys();
+                if (rs.next()) {
+                    int autoGeneratedKey = rs.getInt(1);
+                    if (autoGeneratedKey > 0) return autoGeneratedKey;
+                }
+                throw new SQLException("Error getting autogenerated key!");
+            } finally {
+                super.close();
+            }
+        }
+    }
+}
@@ -5,24 +5,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 import pe.mrodas.jdbc.helper.Autoclose;
-import pe.mrodas.jdbc.helper.InOperator;
+import pe.mrodas.jdbc.helper.Cancellation;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.DmlSql;
+import pe.mrodas.jdbc.helper.Filters;
 import pe.mrodas.jdbc.helper.Parameter;
 import pe.mrodas.jdbc.helper.SqlDML;
 
 public class SqlUpdate implements SqlDML {
-    private final static String QUERY = "UPDATE <table> SET <fields> WHERE <filters>";
     private final List<String> fields = new ArrayList<>();
-    private final List<String> filters = new ArrayList<>();
-    private final LinkedHashMap<String, Object> fieldsMap = new LinkedHashMap<>();
-    private final LinkedHashMap<String, Object> filtersMap = new LinkedHashMap<>();
+    private final List<Boolean> nullFields = new ArrayList<>();
+    private final List<Object> fieldValues = new ArrayList<>();
+    private final Filters filters = new Filters();
     private final String table;
     private final boolean ignoreNullFields;
     private String error;
+    private int timeout;
+    private final Cancellation cancellation = new Cancellation();
 
     public SqlUpdate(String table, boolean ignoreNullFields) {
         this.table = table;
@@ -33,17 +35,33 @@ public class SqlUpdate implements SqlDML {
         this(table, true);
     }
 
+    /**
+     * @param seconds Timeout de la sentencia (0: sin timeout). Dentro de un {@link Deadline}
+     *                se usa el menor entre este valor y el tiempo restante
+     */
+    public SqlUpdate setTimeout(int seconds) {
+        this.timeout = seconds;
+        return this;
+    }
+
+    /**
+     * Cancela la sentencia en ejecución desde otro hilo. Si aún no se ejecutó,
+     * fallará al ejecutarse.
+     */
+    public void cancel() throws SQLException {
+        cancellation.cancel();
+    }
+
     @Override
     public SqlUpdate addField(String name, Object value) {
         if (error != null) return this;
         if (name == null || name.trim().isEmpty())
             error = "Field name can't be null or empty!";
-        else if (value == null) {
-            if (ignoreNullFields) return this;
-            fields.add(String.format("%s = NULL", name));
-        } else {
-            fields.add(this.getParameter(name));
-            fieldsMap.put(name, value);
+        else if (value != null || !ignoreNullFields) {
+            this.checkQuoted(name);
+            fields.add(name);
+            nullFields.add(value == null);
+            if (value != null) fieldValues.add(value);
         }
         return this;
     }
@@ -55,8 +73,8 @@ public class SqlUpdate implements SqlDML {
         else if (value == null)
             error = String.format("Filter '%s' value can't be null!", name);
         else {
-            filters.add(this.getParameter(name));
-            filtersMap.put(name, value);
+            this.checkQuoted(name);
+            filters.add(name, value);
         }
         return this;
     }
@@ -66,68 +84,74 @@ public class SqlUpdate implements SqlDML {
         if (name == null || name.trim().isEmpty())
             error = "Filter name can't be null or empty!";
         else {
-            InOperator<T> inOperator = new InOperator<>(this.sanitize(name), values);
-            if (inOperator.isInvalid())
+            this.checkQuoted(name);
+            if (error == null && !filters.add(name, values))
                 error = String.format("Filter list '%s' can't be null or empty!", name);
-            else {
-                String fields = inOperator.getFields();
-                filters.add(String.format("%s IN (%s)", name, fields));
-                inOperator.getParameters().forEach(filtersMap::put);
-            }
         }
         return this;
     }
 
-    private String getParameter(String name) {
-        return String.format("%s = :%s", name, this.sanitize(name));
-    }
-
-    private String sanitize(String name) {
+    private void checkQuoted(String name) {
         int endIndex = name.length() - 1;
-        if (name.charAt(0) != name.charAt(endIndex)) return name;
-        if (name.charAt(0) != '`') return name;
-        String sanitized = name.substring(1, endIndex);
-        if (sanitized.trim().isEmpty())
+        if (endIndex > 0 && name.charAt(0) == '`' && name.charAt(endIndex) == '`'
+                && name.substring(1, endIndex).trim().isEmpty())
             error = String.format("Parameter '%s' can't be empty!", name);
-        return sanitized;
     }
 
     public int execute() throws IOException, SQLException {
         return this.execute(null, null);
     }
 
-    private int registerParameters(PreparedStatement statement, int initPos, LinkedHashMap<String, Object> fieldsMap) throws SQLException {
-        Parameter.Position position = new Parameter.Position(initPos);
+    private void registerParameters(PreparedStatement statement) throws SQLException {
+        int pos = 0;
         try {
-            for (Map.Entry<String, Object> entry : fieldsMap.entrySet()) {
-                position.setName(entry.getKey());
-                new Parameter<>(entry.getValue()).registerIN(statement, position.incrementAndGet());
-            }
-            return position.getPos();
+            for (Object value : fieldValues) new Parameter<>(value).registerIN(statement, ++pos);
+            for (Object value : filters.getValues()) new Parameter<>(value).registerIN(statement, ++pos);
         } catch (SQLException e) {
+            String name = pos <= fieldValues.size() ? this.getFieldName(pos - 1) : filters.getNameAt(pos - 1 - fieldValues.size());
             String errorMsg = "Error setting '%s' parameter in statement! - %s";
-            throw new SQLException(String.format(errorMsg, position.getName(), e.getMessage()), e);
+            throw new SQLException(String.format(errorMsg, name, e.getMessage()), e);
         }
     }
 
+    private String getFieldName(int valueIndex) {
+        for (int i = 0, index = -1; i < fields.size(); i++)
+            if (!nullFields.get(i) && ++index == valueIndex) return fields.get(i);
+        return null;
+    }
+
+    private String getPreparedQuery() throws IOException {
+        if (table == null) throw new IOException("Table name can't be null!");
+        if (error != null) throw new IOException(error);
+        if (fields.isEmpty()) throw new IOException("Fields can't be empty!");
+        if (filters.isEmpty()) throw new IOException("Filters can't be empty!");
+        return DmlSql.update(table, fields, nullFields, filters);
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    String getBatchSql() throws IOException {
+        return this.getPreparedQuery();
+    }
+
+    void addBatch(PreparedStatement statement) throws SQLException {
+        this.registerParameters(statement);
+        statement.addBatch();
+    }
+
     public int execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        String preparedQuery = this.getPreparedQuery();
+        Connection conn = connection == null ? Connector.getConnection() : connection;
         try {
-            if (table == null) throw new IOException("Table name can't be null!");
-            if (fields.isEmpty()) throw new IOException("Fields can't be empty!");
-            if (filters.isEmpty()) throw new IOException("Filters can't be empty!");
-            if (error != null) throw new IOException(error);
-            String query = QUERY.replace("<table>", table)
-                    .replace("<fields>", String.join(", ", fields))
-                    .replace("<filters>", String.join(" AND ", filters));
-            String preparedQuery = query.replaceAll(":\\w+", "?");
-            PreparedStatement statement = (connection == null ? Connector.getConnection() : connection)
-                    .prepareStatement(preparedQuery);
-            int pos = this.registerParameters(statement, 0, this.fieldsMap);
-            this.registerParameters(statement, pos, this.filtersMap);
+            PreparedStatement statement = cancellation.start(conn.prepareStatement(preparedQuery), timeout);
+            this.registerParameters(statement);
             statement.execute();
             return statement.getUpdateCount();
         } finally {
-            this.close(connection, autoclose);
+            cancellation.finish();
+            this.close(conn, connection == null ? Autoclose.YES : autoclose);
         }
     }
 
@@ -0,0 +1,193 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.Dialect;
+import pe.mrodas.jdbc.helper.MetadataCache;
+import pe.mrodas.jdbc.helper.Parameter;
+import pe.mrodas.jdbc.helper.SqlDML;
+
+/**
+ * Insert-or-update in one statement, using the syntax of the connection's dialect:
+ * <ul>
+ * <li>MySQL: INSERT ... ON DUPLICATE KEY UPDATE</li>
+ * <li>PostgreSQL: INSERT ... ON CONFLICT (keys) DO UPDATE</li>
+ * <li>H2: MERGE INTO ... KEY (keys)</li>
+ * <li>Others (e.g. SQL Server): MERGE INTO ... USING (VALUES ...);</li>
+ * </ul>
+ * Oracle can't read a VALUES list in MERGE, so it is not supported.
+ * <br>
+ * As in {@link SqlInsert}, calling addKey/addField again for the same column adds a new row.
+ * Rows are sent as multi-row VALUES, up to {@link #MAX_ROWS} rows and
+ * {@value #MAX_PARAMETERS} parameters (SQL Server accepts 2100) per statement.
+ * A key must not repeat within the same execution.
+ *
+ * @author Marco Rodas
+ */
+public class SqlUpsert implements SqlDML {
+
+    public final static int MAX_ROWS = 1000;
+    public final static int MAX_PARAMETERS = 2000;
+    private final Map<String, List<Parameter<?>>> valueListMap = new LinkedHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final String table;
+    private String error;
+    private int totalRows;
+
+    public SqlUpsert(String table) {
+        this.table = table == null ? null : table.replace(" ", "");
+    }
+
+    /**
+     * Agrega el valor de una columna que forma parte de la llave única
+     * que determina si la fila se inserta o se actualiza
+     */
+    public SqlUpsert addKey(String name, Object value) {
+        if (error == null && name != null && !keys.contains(name)) keys.add(name);
+        return this.addField(name, new Parameter<>(value));
+    }
+
+    @Override
+    public SqlUpsert addField(String name, Object value) {
+        return this.addField(name, new Parameter<>(value));
+    }
+
+    public SqlUpsert addField(String name, Object value, JDBCType type) {
+        return this.addField(name, new Parameter<>(value, type));
+    }
+
+    public <P> SqlUpsert addField(String name, P value, Class<P> objClass) {
+        return this.addField(name, new Parameter<>(value, objClass));
+    }
+
+    private SqlUpsert addField(String name, Parameter<?> parameter) {
+        if (error != null) return this;
+        if (name == null || name.trim().isEmpty())
+            error = "Field name can't be null or empty!";
+        else valueListMap.computeIfAbsent(name, k -> new ArrayList<>()).add(parameter);
+        return this;
+    }
+
+    private String checkNumRows() {
+        if (error == null) for (Map.Entry<String, List<Parameter<?>>> entry : valueListMap.entrySet()) {
+            int numRowsByField = entry.getValue().size();
+            if (totalRows == 0) totalRows = numRowsByField;
+            if (totalRows != numRowsByField) {
+                String msg = totalRows > numRowsByField ? "less" : "more";
+                return String.format("Fields Error: %s has %s rows than other fields!", entry.getKey(), msg);
+            }
+        }
+        return error;
+    }
+
+    /**
+     * @return Filas por sentencia para no pasar de {@link #MAX_ROWS} ni de {@link #MAX_PARAMETERS}
+     */
+    static int getChunkSize(int numFields) {
+        return Math.max(1, Math.min(MAX_ROWS, MAX_PARAMETERS / Math.max(1, numFields)));
+    }
+
+    String getPreparedQuery(Dialect dialect, List<String> fieldNames, int rows) {
+        String row = String.format("(%s)", String.join(", ", Collections.nCopies(fieldNames.size(), "?")));
+        String values = String.join(", ", Collections.nCopies(rows, row));
+        String fields = String.join(", ", fieldNames);
+        List<String> updates = fieldNames.stream().filter(f -> !keys.contains(f)).collect(Collectors.toList());
+        String insert = String.format("INSERT INTO %s (%s) VALUES %s", table, fields, values);
+        switch (dialect) {
+            case MYSQL:
+                List<String> mysqlSet = updates.stream().map(f -> String.format("%s = VALUES(%s)", f, f))
+                        .collect(Collectors.toList());
+                if (mysqlSet.isEmpty()) mysqlSet.add(String.format("%s = %s", keys.get(0), keys.get(0)));
+                return String.format("%s ON DUPLICATE KEY UPDATE %s", insert, String.join(", ", mysqlSet));
+            case POSTGRESQL:
+                String conflict = String.format("%s ON CONFLICT (%s)", insert, String.join(", ", keys));
+                if (updates.isEmpty()) return conflict + " DO NOTHING";
+                return String.format("%s DO UPDATE SET %s", conflict, updates.stream()
+                        .map(f -> String.format("%s = EXCLUDED.%s", f, f)).collect(Collectors.joining(", ")));
+            case H2:
+                return String.format("MERGE INTO %s (%s) KEY (%s) VALUES %s", table, fields, String.join(", ", keys), values);
+            default:
+                String on = keys.stream().map(k -> String.format("target.%s = upsert.%s", k, k))
+                        .collect(Collectors.joining(" AND "));
+                String matched = updates.isEmpty() ? "" : " WHEN MATCHED THEN UPDATE SET " + updates.stream()
+                        .map(f -> String.format("%s = upsert.%s", f, f)).collect(Collectors.joining(", "));
+                String source = fieldNames.stream().map(f -> "upsert." + f).collect(Collectors.joining(", "));
+                // SQL Server requiere el ";" final en MERGE
+                return String.format("MERGE INTO %s target USING (VALUES %s) upsert (%s) ON (%s)%s WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s);",
+                        table, values, fields, on, matched, fields, source);
+        }
+    }
+
+    private int executeRows(Connection conn, Dialect dialect, List<String> fieldNames, int fromRow, int rows) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(this.getPreparedQuery(dialect, fieldNames, rows))) {
+            int index = 0;
+            Integer[] columnTypes = new Integer[fieldNames.size()];
+            for (int row = fromRow; row < fromRow + rows; row++)
+                for (int col = 0; col < fieldNames.size(); col++) {
+                    String name = fieldNames.get(col);
+                    Parameter<?> parameter = valueListMap.get(name).get(row);
+                    try {
+                        if (!parameter.valueIsNull()) parameter.registerIN(statement, ++index);
+                        else if (parameter.isTyped()) statement.setNull(++index, parameter.getSqlType());
+                        else {
+                            if (columnTypes[col] == null)
+                                columnTypes[col] = MetadataCache.getColumnType(conn, table, name);
+                            statement.setNull(++index, columnTypes[col]);
+                        }
+                    } catch (SQLException e) {
+                        String errorMsg = "Upsert into %s: Error setting '%s' parameter (row=%s) in statement! - %s";
+                        throw new SQLException(String.format(errorMsg, table, name, row, e.getMessage()), e);
+                    }
+                }
+            return statement.executeUpdate();
+        }
+    }
+
+    public int execute() throws IOException, SQLException {
+        return this.execute(null, null);
+    }
+
+    /**
+     * @return Suma de los update count de cada sentencia. En MySQL una fila
+     * actualizada cuenta 2 y una sin cambios 0
+     */
+    public int execute(Connection connection, Autoclose autoclose) throws IOException, SQLException {
+        if (table == null) throw new IOException("Table name can't be null!");
+        if (valueListMap.isEmpty()) error = "Fields can't be empty!";
+        if (error == null && keys.isEmpty()) error = "Keys can't be empty!";
+        error = this.checkNumRows();
+        if (error != null) throw new IOException(error);
+        Dialect dialect = connection == null ? Connector.getDefault().getDialect() : Dialect.of(connection);
+        if (dialect == Dialect.ORACLE) throw new IOException("Upsert isn't supported on Oracle!");
+        Connection conn = connection == null ? Connector.getConnection() : connection;
+        List<String> fieldNames = new ArrayList<>(valueListMap.keySet());
+        int chunk = SqlUpsert.getChunkSize(fieldNames.size());
+        try {
+            int updateCount = 0;
+            for (int row = 0; row < totalRows; row += chunk)
+                updateCount += this.executeRows(conn, dialect, fieldNames, row, Math.min(chunk, totalRows - row));
+            return updateCount;
+        } finally {
+            this.close(conn, autoclose == null ? Autoclose.YES : autoclose);
+        }
+    }
+
+    private void close(Connection conn, Autoclose autoclose) {
+        if (autoclose == Autoclose.YES) try {
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
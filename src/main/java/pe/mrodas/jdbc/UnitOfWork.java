@@ -0,0 +1,138 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.Deadline;
+import pe.mrodas.jdbc.helper.ThrowingConsumer;
+
+/**
+ * Queues SqlInsert, SqlUpdate and SqlDelete operations and runs them at commit
+ * grouped by generated SQL, one JDBC batch per group:
+ * <pre>
+ * {@code
+ * UnitOfWork work = new UnitOfWork();
+ * for (Line line : lines) work.add(new SqlInsert("line").addField(...));
+ * work.add(new SqlUpdate("orders").addField(...).addFilter(...));
+ * work.commit();
+ * }</pre>
+ * An operation joins only the last group, when it has the same SQL, so the operations run
+ * in the order they were queued and foreign keys between tables are respected: queue the
+ * rows of one statement together (e.g. all parents, then all children) to get fewer batches.
+ * Inserts that return generated keys run on their own.
+ *
+ * @author Marco Rodas
+ */
+public class UnitOfWork {
+
+    private final List<Group> groups = new ArrayList<>();
+    private String error;
+
+    public UnitOfWork add(SqlInsert insert) {
+        if (insert.returnsGeneratedKeys())
+            return this.add(insert.getTable(), null, null, conn -> insert.execute(conn, Autoclose.NO));
+        return this.add(insert.getTable(), insert::getBatchSql, insert::addBatch, null);
+    }
+
+    public UnitOfWork add(SqlUpdate update) {
+        return this.add(update.getTable(), update::getBatchSql, update::addBatch, null);
+    }
+
+    public UnitOfWork add(SqlDelete delete) {
+        return this.add(delete.getTable(), delete::getBatchSql, delete::addBatch, null);
+    }
+
+    private interface SqlSupplier {
+        String get() throws IOException;
+    }
+
+    private UnitOfWork add(String table, SqlSupplier sqlSupplier, ThrowingConsumer<PreparedStatement> binder, ThrowingConsumer<Connection> single) {
+        if (error != null) return this;
+        String sql = null;
+        if (sqlSupplier != null) try {
+            sql = sqlSupplier.get();
+        } catch (IOException e) {
+            error = String.format("Operation #%s on '%s': %s", this.size(), table, e.getMessage());
+            return this;
+        }
+        Group last = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+        if (sql != null && last != null && sql.equals(last.sql)) {
+            last.binders.add(binder);
+            return this;
+        }
+        groups.add(new Group(sql, binder, single));
+        return this;
+    }
+
+    /**
+     * @return Número de operaciones en cola
+     */
+    public int size() {
+        return groups.stream().mapToInt(g -> g.single == null ? g.binders.size() : 1).sum();
+    }
+
+    /**
+     * @return Número de sentencias/batches que se enviarán al confirmar
+     */
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    /**
+     * Ejecuta las operaciones en cola sin confirmar la transacción y vacía la cola.
+     *
+     * @return Suma de los update count conocidos
+     */
+    public int flush(Connection connection) throws Exception {
+        try {
+            if (error != null) throw new IOException(error);
+            int updateCount = 0;
+            for (Group group : groups) updateCount += group.execute(connection);
+            return updateCount;
+        } finally {
+            groups.clear();
+            error = null;
+        }
+    }
+
+    /**
+     * Ejecuta las operaciones en cola en una transacción con {@link Connector#batch(pe.mrodas.jdbc.helper.ThrowingFunction)}
+     */
+    public int commit() throws Exception {
+        return Connector.batch(this::flush);
+    }
+
+    private static class Group {
+        private final String sql;
+        private final List<ThrowingConsumer<PreparedStatement>> binders = new ArrayList<>();
+        private final ThrowingConsumer<Connection> single;
+
+        private Group(String sql, ThrowingConsumer<PreparedStatement> binder, ThrowingConsumer<Connection> single) {
+            this.sql = sql;
+            this.single = single;
+            if (binder != null) binders.add(binder);
+        }
+
+        private int execute(Connection connection) throws Exception {
+            if (single != null) {
+                single.accept(connection);
+                return 1;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                Deadline.apply(statement, 0);
+                for (ThrowingConsumer<PreparedStatement> binder : binders) binder.accept(statement);
+                int updateCount = 0;
+                for (int count : statement.executeBatch()) if (count > 0) updateCount += count;
+                return updateCount;
+            } catch (SQLException e) {
+                String msj = String.format("%s Batch:(%s)", e.getMessage(), sql);
+                throw new SQLException(msj, e);
+            }
+        }
+    }
+}
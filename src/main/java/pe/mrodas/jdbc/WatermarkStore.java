@@ -0,0 +1,69 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the high-water mark of each {@link ChangePoller} subscription between polls.
+ *
+ * @author Marco Rodas
+ */
+public interface WatermarkStore {
+
+    /**
+     * @return Valores de las columnas de la marca, o null si la suscripción aún no tiene marca
+     */
+    Object[] load(String subscription) throws IOException, SQLException;
+
+    void save(String subscription, Object[] mark) throws IOException, SQLException;
+
+    /**
+     * Marcas en memoria, se pierden al detener la aplicación
+     */
+    static WatermarkStore memory() {
+        ConcurrentHashMap<String, Object[]> marks = new ConcurrentHashMap<>();
+        return new WatermarkStore() {
+            @Override
+            public Object[] load(String subscription) {
+                Object[] mark = marks.get(subscription);
+                return mark == null ? null : mark.clone();
+            }
+
+            @Override
+            public void save(String subscription, Object[] mark) {
+                marks.put(subscription, mark.clone());
+            }
+        };
+    }
+
+    /**
+     * Marcas en una tabla con una fila por suscripción, ej:
+     * <code>CREATE TABLE watermark (name VARCHAR(100) PRIMARY KEY, updated_at TIMESTAMP, id BIGINT)</code>.
+     * Las columnas de la marca deben tener el tipo de las columnas del poller.
+     *
+     * @param nameColumn  Columna llave con el nombre de la suscripción
+     * @param markColumns Columnas de la marca, en el orden de las columnas del poller
+     */
+    static WatermarkStore table(String table, String nameColumn, String... markColumns) {
+        return new WatermarkStore() {
+            @Override
+            public Object[] load(String subscription) throws IOException, SQLException {
+                String query = String.format("SELECT %s FROM %s WHERE %s = :name", String.join(", ", markColumns), table, nameColumn);
+                return new SqlQuery<Object[]>().setSql(query).addParameter("name", subscription).execute((statement, rs) -> {
+                    if (!rs.next()) return null;
+                    Object[] mark = new Object[markColumns.length];
+                    for (int i = 0; i < mark.length; i++) mark[i] = rs.getObject(i + 1);
+                    return mark;
+                });
+            }
+
+            @Override
+            public void save(String subscription, Object[] mark) throws IOException, SQLException {
+                SqlUpsert upsert = new SqlUpsert(table).addKey(nameColumn, subscription);
+                for (int i = 0; i < markColumns.length; i++) upsert.addField(markColumns[i], mark[i]);
+                upsert.execute();
+            }
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind buffer for high-frequency single-row inserts. Any thread can submit rows to a
+ * lock-free queue; a flusher thread writes them as one {@link SqlInsert} batch once
+ * <code>batchSize</code> rows are waiting or <code>flushInterval</code> has elapsed.
+ * <pre>
+ * {@code
+ * WriteBehindInsert audit = new WriteBehindInsert("audit", "user_id", "action", "created")
+ *         .setCapacity(50000, WriteBehindInsert.Overflow.DROP).start();
+ * audit.submit(userId, "login", LocalDateTime.now());
+ * }</pre>
+ * The returned future completes once the row's batch is written, or exceptionally if it
+ * failed or was dropped. Pending rows are written on {@link #close()} or JVM shutdown.
+ *
+ * @author Marco Rodas
+ */
+public class WriteBehindInsert implements AutoCloseable {
+
+    public enum Overflow {
+        /**
+         * El hilo espera a que haya espacio
+         */
+        BLOCK,
+        /**
+         * La fila se descarta y su future termina con error
+         */
+        DROP,
+        /**
+         * submit lanza IOException
+         */
+        FAIL
+    }
+
+    private final ConcurrentLinkedQueue<Row> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final String table;
+    private final String[] fields;
+    private int batchSize = 500, capacity = 10000;
+    private long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(200);
+    private Overflow overflow = Overflow.BLOCK;
+    private Semaphore space;
+    private Thread flusher, shutdownHook;
+    private volatile boolean running;
+
+    public WriteBehindInsert(String table, String... fields) {
+        this.table = table;
+        this.fields = fields;
+    }
+
+    public WriteBehindInsert setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public WriteBehindInsert setFlushInterval(long millis) {
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    /**
+     * @param capacity Máximo de filas en espera
+     * @param overflow Qué hacer cuando se alcanza la capacidad
+     */
+    public WriteBehindInsert setCapacity(int capacity, Overflow overflow) {
+        this.capacity = capacity;
+        this.overflow = overflow;
+        return this;
+    }
+
+    public synchronized WriteBehindInsert start() throws IOException {
+        if (running) return this;
+        if (table == null || table.trim().isEmpty()) throw new IOException("Table name can't be null or empty!");
+        if (fields == null || fields.length == 0) throw new IOException("Fields can't be empty!");
+        if (batchSize < 1) throw new IOException("Batch size must be greater than 0!");
+        if (capacity < batchSize) throw new IOException("Capacity can't be less than batch size!");
+        if (overflow == null) throw new IOException("Overflow policy can't be null!");
+        space = new Semaphore(capacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "write-behind-" + table);
+        flusher.setDaemon(true);
+        flusher.start();
+        shutdownHook = new Thread(this::close, "write-behind-" + table + "-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        return this;
+    }
+
+    /**
+     * Encola una fila
+     *
+     * @param values Valores en el mismo orden de los campos del constructor
+     * @return Future que termina al escribirse la fila
+     * @throws IOException Si la cantidad de valores no coincide, el buffer no está iniciado
+     *                     o está lleno con {@link Overflow#FAIL}
+     */
+    public CompletableFuture<Void> submit(Object... values) throws IOException {
+        if (!running) throw new IOException(String.format("WriteBehindInsert '%s' is not running!", table));
+        if (values == null || values.length != fields.length)
+            throw new IOException(String.format("Row must have %s values!", fields.length));
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!space.tryAcquire()) switch (overflow) {
+            case DROP:
+                dropped.incrementAndGet();
+                future.completeExceptionally(new IOException(String.format("Row dropped, '%s' buffer is full!", table)));
+                return future;
+            case FAIL:
+                throw new IOException(String.format("'%s' buffer is full!", table));
+            default:
+                try {
+                    space.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for buffer space!", e);
+                }
+        }
+        Row row = new Row(values, future);
+        queue.offer(row);
+        if (pending.incrementAndGet() == batchSize) LockSupport.unpark(flusher);
+        if (!running && queue.remove(row)) {
+            pending.decrementAndGet();
+            space.release();
+            throw new IOException(String.format("WriteBehindInsert '%s' is not running!", table));
+        }
+        return future;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    private void flushLoop() {
+        try {
+            while (running || !queue.isEmpty()) {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                for (long wait; running && pending.get() < batchSize && (wait = deadline - System.nanoTime()) > 0; )
+                    LockSupport.parkNanos(this, wait);
+                while (!queue.isEmpty()) this.flushBatch();
+            }
+        } finally {
+            // si el hilo termina por un error, nadie escribirá las filas en cola: se liberan los que esperan espacio
+            running = false;
+            IOException stopped = new IOException(String.format("WriteBehindInsert '%s' flusher stopped!", table));
+            for (Row row; (row = queue.poll()) != null; ) {
+                pending.decrementAndGet();
+                space.release();
+                row.future.completeExceptionally(stopped);
+            }
+        }
+    }
+
+    private void flushBatch() {
+        List<Row> batch = new ArrayList<>(batchSize);
+        for (Row row; batch.size() < batchSize && (row = queue.poll()) != null; ) batch.add(row);
+        pending.addAndGet(-batch.size());
+        space.release(batch.size());
+        try {
+            SqlInsert insert = new SqlInsert(table);
+            for (Row row : batch)
+                for (int i = 0; i < fields.length; i++) insert.addField(fields[i], row.values[i]);
+            insert.execute();
+            for (Row row : batch) row.future.complete(null);
+        } catch (Throwable e) {
+            // un Error del driver o de un valor falla solo este batch, el hilo sigue escribiendo
+            for (Row row : batch) row.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Deja de aceptar filas y espera a que se escriban las pendientes
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            current = flusher;
+            try {
+                if (Thread.currentThread() != shutdownHook) Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // la JVM ya se está cerrando
+            }
+        }
+        LockSupport.unpark(current);
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Row {
+        private final Object[] values;
+        private final CompletableFuture<Void> future;
+
+        private Row(Object[] values, CompletableFuture<Void> future) {
+            this.values = values;
+            this.future = future;
+        }
+    }
+}
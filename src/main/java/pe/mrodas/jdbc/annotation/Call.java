@@ -0,0 +1,22 @@
+package pe.mrodas.jdbc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stored procedure called by a {@link Dao} method. Method parameters are bound as IN
+ * parameters in declaration order, the first result set is mapped to the return type.
+ *
+ * @author Marco Rodas
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Call {
+
+    /**
+     * Nombre del procedimiento
+     */
+    String value();
+}
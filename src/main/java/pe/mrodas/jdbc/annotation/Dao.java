@@ -0,0 +1,17 @@
+package pe.mrodas.jdbc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface whose {@link Sql}/{@link Call} methods are implemented at compile time
+ * by {@link pe.mrodas.jdbc.processor.DaoProcessor} in a class named &lt;Interface&gt;Impl.
+ *
+ * @author Marco Rodas
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Dao {
+}
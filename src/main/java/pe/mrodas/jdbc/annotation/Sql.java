@@ -0,0 +1,33 @@
+package pe.mrodas.jdbc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Query of a {@link Dao} method, with ":parameter" placeholders named as the method parameters.
+ * A query starting with SELECT or WITH maps its rows to the return type, any other
+ * statement returns its update count (int/long) or nothing (void).
+ *
+ * @author Marco Rodas
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Sql {
+
+    /**
+     * Texto de la consulta. Vacío si se usa {@link #name()}
+     */
+    String value() default "";
+
+    /**
+     * Nombre de la consulta ("-- name: queryName") dentro de {@link #resource()}
+     */
+    String name() default "";
+
+    /**
+     * Archivo .sql del classpath ej: "sql/users.sql"
+     */
+    String resource() default "";
+}
@@ -0,0 +1,53 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets another thread cancel the statement an operation is running. A cancel that arrives
+ * before the statement starts is kept, and the operation fails when it tries to start it.
+ *
+ * @author Marco Rodas
+ */
+public class Cancellation {
+
+    private volatile boolean cancelled;
+    private volatile Statement running;
+
+    /**
+     * Cancela la sentencia en ejecución. Si aún no se ejecutó, fallará al ejecutarse.
+     */
+    public void cancel() throws SQLException {
+        cancelled = true;
+        Statement statement = running;
+        if (statement != null) statement.cancel();
+    }
+
+    /**
+     * Aplica el timeout y registra la sentencia para {@link #cancel()}. Si ya fue cancelada
+     * o el {@link Deadline} venció, la cierra y falla.
+     */
+    public <S extends Statement> S start(S statement, int timeout) throws SQLException {
+        try {
+            if (cancelled) throw new SQLException("Statement was cancelled!");
+            Deadline.apply(statement, timeout);
+            running = statement;
+            if (cancelled) throw new SQLException("Statement was cancelled!");
+            return statement;
+        } catch (SQLException | RuntimeException e) {
+            running = null;
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Olvida la sentencia registrada, debe llamarse al terminar de usarla
+     */
+    public void finish() {
+        running = null;
+    }
+}
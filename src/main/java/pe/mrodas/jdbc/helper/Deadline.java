@@ -0,0 +1,71 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget for all the statements executed by the current thread inside {@link #within}:
+ * <pre>
+ * {@code
+ * Order order = Deadline.within(2, TimeUnit.SECONDS, () -> {
+ *     Order o = new SqlQuery<Order>().setSql(...).execute(...);
+ *     o.setLines(new SqlQuery<Line>().setSql(...).executeForList(...));
+ *     return o;
+ * });
+ * }</pre>
+ * Each statement gets the remaining budget as query timeout (rounded up to whole seconds,
+ * the JDBC granularity) and fails with {@link SQLTimeoutException} once it is exhausted.
+ * Nested calls keep the earliest deadline.
+ *
+ * @author Marco Rodas
+ */
+public final class Deadline {
+
+    private final static ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    public static <T> T within(long timeout, TimeUnit unit, Callable<T> callable) throws Exception {
+        Long previous = DEADLINE.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (previous != null && previous - deadline < 0) deadline = previous;
+        DEADLINE.set(deadline);
+        try {
+            return callable.call();
+        } finally {
+            if (previous == null) DEADLINE.remove();
+            else DEADLINE.set(previous);
+        }
+    }
+
+    /**
+     * @return Nanosegundos restantes o null si no hay un deadline activo
+     */
+    public static Long remainingNanos() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? null : deadline - System.nanoTime();
+    }
+
+    /**
+     * @param timeout Timeout propio de la sentencia en segundos (0: sin timeout)
+     * @return El menor entre el timeout propio y el tiempo restante del deadline
+     * @throws SQLTimeoutException Si el deadline ya venció
+     */
+    public static int getQueryTimeout(int timeout) throws SQLTimeoutException {
+        Long remaining = Deadline.remainingNanos();
+        if (remaining == null) return timeout;
+        if (remaining <= 0) throw new SQLTimeoutException("Deadline exceeded!");
+        long seconds = (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        int remainingSeconds = (int) Math.min(Integer.MAX_VALUE, seconds);
+        return timeout > 0 ? Math.min(timeout, remainingSeconds) : remainingSeconds;
+    }
+
+    public static void apply(Statement statement, int timeout) throws SQLException {
+        int queryTimeout = Deadline.getQueryTimeout(timeout);
+        if (queryTimeout > 0) statement.setQueryTimeout(queryTimeout);
+    }
+}
@@ -0,0 +1,39 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public enum Dialect {
+    MYSQL, POSTGRESQL, H2, SQLSERVER, ORACLE, OTHER;
+
+    /**
+     * @param driverOrUrl Clase del driver o url JDBC ej: "com.mysql.jdbc.Driver", "jdbc:h2:mem:db"
+     */
+    public static Dialect of(String driverOrUrl) {
+        if (driverOrUrl == null) return OTHER;
+        String value = driverOrUrl.trim().toLowerCase();
+        if (Dialect.matches(value, "mysql", "mariadb")) return MYSQL;
+        if (Dialect.matches(value, "postgresql")) return POSTGRESQL;
+        if (Dialect.matches(value, "h2")) return H2;
+        if (Dialect.matches(value, "sqlserver", "jtds", "microsoft")) return SQLSERVER;
+        if (Dialect.matches(value, "oracle") || value.startsWith("oracle.jdbc.")) return ORACLE;
+        return OTHER;
+    }
+
+    /**
+     * @return true si es una url "jdbc:&lt;subprotocol&gt;:..." o un driver del paquete
+     * "org|com.&lt;subprotocol&gt;.", sin buscar el nombre en el host o la base de datos
+     */
+    private static boolean matches(String value, String... subprotocols) {
+        for (String subprotocol : subprotocols) {
+            if (value.startsWith("jdbc:" + subprotocol + ":")) return true;
+            if (value.startsWith("org." + subprotocol + ".") || value.startsWith("com." + subprotocol + "."))
+                return true;
+        }
+        return false;
+    }
+
+    public static Dialect of(Connection connection) throws SQLException {
+        return Dialect.of(connection.getMetaData().getURL());
+    }
+}
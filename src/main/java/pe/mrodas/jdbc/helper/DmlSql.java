@@ -0,0 +1,87 @@
+package pe.mrodas.jdbc.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * SQL con "?" de SqlInsert, SqlUpdate y SqlDelete, generado una sola vez por forma:
+ * tabla, columnas en orden y forma de los filtros. Las siguientes ejecuciones con la
+ * misma forma sólo buscan en el cache, sin armar texto ni usar expresiones regulares.
+ *
+ * @author Marco Rodas
+ */
+public final class DmlSql {
+
+    private final static int MAX_ENTRIES = 4096;
+    private final static ConcurrentHashMap<List<Object>, String> cache = new ConcurrentHashMap<>();
+
+    private DmlSql() {
+    }
+
+    public static void clear() {
+        cache.clear();
+    }
+
+    public static String insert(String table, List<String> fields) {
+        return DmlSql.get(Arrays.asList("INSERT", table, fields), () -> {
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+            DmlSql.join(sql, fields, ", ");
+            sql.append(") VALUES (");
+            for (int i = 0; i < fields.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+            return sql.append(')').toString();
+        });
+    }
+
+    /**
+     * @param nullFields Por cada campo, true si se asigna NULL literal (sin "?")
+     */
+    public static String update(String table, List<String> fields, List<Boolean> nullFields, Filters filters) {
+        List<Object> key = Arrays.asList("UPDATE", table, fields, nullFields, filters.getNames(), filters.getSizes());
+        return DmlSql.get(key, () -> {
+            StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+            for (int i = 0; i < fields.size(); i++)
+                sql.append(i == 0 ? "" : ", ").append(fields.get(i)).append(nullFields.get(i) ? " = NULL" : " = ?");
+            return DmlSql.appendFilters(sql.append(" WHERE "), filters).toString();
+        });
+    }
+
+    public static String delete(String table, Filters filters) {
+        List<Object> key = Arrays.asList("DELETE", table, filters.getNames(), filters.getSizes());
+        return DmlSql.get(key, () -> DmlSql.appendFilters(new StringBuilder("DELETE FROM ")
+                .append(table).append(" WHERE "), filters).toString());
+    }
+
+    private static StringBuilder appendFilters(StringBuilder sql, Filters filters) {
+        List<String> names = filters.getNames();
+        List<Integer> sizes = filters.getSizes();
+        for (int i = 0; i < names.size(); i++) {
+            sql.append(i == 0 ? "" : " AND ").append(names.get(i));
+            int size = sizes.get(i);
+            if (size == 0) sql.append(" = ?");
+            else {
+                sql.append(" IN (");
+                for (int j = 0; j < size; j++) sql.append(j == 0 ? "?" : ",?");
+                sql.append(')');
+            }
+        }
+        return sql;
+    }
+
+    private static void join(StringBuilder sql, List<String> items, String delimiter) {
+        for (int i = 0; i < items.size(); i++) sql.append(i == 0 ? "" : delimiter).append(items.get(i));
+    }
+
+    private static String get(List<Object> key, Supplier<String> builder) {
+        String sql = cache.get(key);
+        if (sql != null) return sql;
+        if (cache.size() >= MAX_ENTRIES) cache.clear();
+        sql = builder.get();
+        List<Object> copy = new ArrayList<>(key.size());
+        for (Object part : key) copy.add(part instanceof List ? new ArrayList<>((List<?>) part) : part);
+        cache.put(copy, sql);
+        return sql;
+    }
+}
@@ -0,0 +1,146 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses the fetch size of each SQL from its previous executions, so that one round-trip
+ * brings about {@link #setBufferBudget(long) bufferBudget} bytes: wide rows get a small fetch
+ * size, narrow rows a large one, and a query known to return few rows fetches them at once.
+ * <br>
+ * The row width is estimated once per SQL from the ResultSetMetaData column types and sizes;
+ * the row count is an exponential moving average of the rows read on each execution.
+ * <br>
+ * MySQL Connector/J reads the whole result into memory and ignores a positive fetch size
+ * unless the url has {@code useCursorFetch=true}; without it no fetch size is suggested.
+ *
+ * @author Marco Rodas
+ */
+public final class FetchSizeTuner {
+
+    public final static int MIN_FETCH_SIZE = 10, MAX_FETCH_SIZE = 10000;
+    private final static int MAX_ENTRIES = 4096, DEFAULT_ROW_BYTES = 256, LOB_BYTES = 4096;
+    private final static double ALPHA = 0.2;
+    private final static ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private static volatile long bufferBudget = 4 * 1024 * 1024;
+    private static volatile boolean enabled = true;
+
+    private FetchSizeTuner() {
+    }
+
+    /**
+     * @param bytes Bytes objetivo por round-trip (por defecto 4MB)
+     */
+    public static void setBufferBudget(long bytes) {
+        bufferBudget = Math.max(1, bytes);
+    }
+
+    public static void setEnabled(boolean enabled) {
+        FetchSizeTuner.enabled = enabled;
+    }
+
+    public static void clear() {
+        stats.clear();
+    }
+
+    /**
+     * @return Fetch size sugerido o 0 (valor del driver) si está deshabilitado
+     */
+    public static int getFetchSize(String sql) {
+        if (!enabled || sql == null) return 0;
+        Stats current = stats.get(sql);
+        int rowBytes = current == null ? DEFAULT_ROW_BYTES : current.rowBytes;
+        long byBudget = bufferBudget / Math.max(1, rowBytes);
+        if (current != null) byBudget = Math.min(byBudget, (long) Math.ceil(current.rows) + 1);
+        return (int) Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, byBudget));
+    }
+
+    /**
+     * @return Fetch size sugerido, o 0 si el driver de la conexión no lo aplica
+     */
+    public static int getFetchSize(String sql, Connection connection) throws SQLException {
+        if (!enabled || sql == null) return 0;
+        DatabaseMetaData metaData = connection == null ? null : connection.getMetaData();
+        if (metaData != null && !FetchSizeTuner.appliesFetchSize(metaData.getURL())) return 0;
+        return FetchSizeTuner.getFetchSize(sql);
+    }
+
+    /**
+     * @return false para MySQL Connector/J sin useCursorFetch=true
+     */
+    static boolean appliesFetchSize(String url) {
+        if (url == null || !url.trim().toLowerCase(Locale.ROOT).startsWith("jdbc:mysql:")) return true;
+        return url.toLowerCase(Locale.ROOT).contains("usecursorfetch=true");
+    }
+
+    /**
+     * Registra las filas leídas en una ejecución
+     *
+     * @param rs   ResultSet de la ejecución, para estimar el ancho de fila la primera vez
+     * @param rows Filas leídas
+     */
+    public static void record(String sql, ResultSet rs, int rows) throws SQLException {
+        if (!enabled || sql == null) return;
+        Stats current = stats.get(sql);
+        if (current == null) {
+            if (stats.size() >= MAX_ENTRIES) stats.clear();
+            current = stats.computeIfAbsent(sql, k -> new Stats());
+        }
+        if (current.rowBytes == 0 && rs != null) current.rowBytes = FetchSizeTuner.estimateRowBytes(rs.getMetaData());
+        current.rows = current.count++ == 0 ? rows : ALPHA * rows + (1 - ALPHA) * current.rows;
+    }
+
+    static int estimateRowBytes(ResultSetMetaData metaData) throws SQLException {
+        int columns = metaData.getColumnCount(), bytes = 0;
+        for (int i = 1; i <= columns; i++) {
+            switch (metaData.getColumnType(i)) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                case Types.TINYINT:
+                    bytes += 1;
+                    break;
+                case Types.SMALLINT:
+                    bytes += 2;
+                    break;
+                case Types.INTEGER:
+                case Types.REAL:
+                case Types.DATE:
+                    bytes += 4;
+                    break;
+                case Types.BIGINT:
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                case Types.TIME:
+                case Types.TIMESTAMP:
+                    bytes += 8;
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    bytes += 16;
+                    break;
+                case Types.BLOB:
+                case Types.CLOB:
+                case Types.NCLOB:
+                case Types.LONGVARBINARY:
+                case Types.LONGVARCHAR:
+                case Types.LONGNVARCHAR:
+                    bytes += LOB_BYTES;
+                    break;
+                default:
+                    bytes += Math.min(Math.max(metaData.getColumnDisplaySize(i), 1), LOB_BYTES);
+            }
+        }
+        return Math.max(1, bytes + 8 * columns);
+    }
+
+    private static class Stats {
+        private volatile int rowBytes, count;
+        private volatile double rows;
+    }
+}
@@ -0,0 +1,75 @@
+package pe.mrodas.jdbc.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Filtros de un UPDATE o DELETE guardados por forma (columna y cantidad de valores)
+ * y valores en orden de registro, para obtener el SQL de {@link DmlSql} sin armar texto.
+ *
+ * @author Marco Rodas
+ */
+public final class Filters {
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    /**
+     * Filtro <code>name = ?</code>
+     */
+    public void add(String name, Object value) {
+        names.add(name);
+        sizes.add(0);
+        values.add(value);
+    }
+
+    /**
+     * Filtro <code>name IN (?, ?, ...)</code>. Los valores nulos se ignoran.
+     *
+     * @return false si la lista es nula o no tiene valores
+     */
+    public boolean add(String name, List<?> list) {
+        if (list == null) return false;
+        List<?> nonNull = list.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (nonNull.isEmpty()) return false;
+        names.add(name);
+        sizes.add(nonNull.size());
+        values.addAll(nonNull);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * @return Valores en el orden de los "?" de los filtros
+     */
+    public List<Object> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * @return Columna del valor en la posición indicada (para mensajes de error)
+     */
+    public String getNameAt(int valueIndex) {
+        int end = 0;
+        for (int i = 0; i < names.size(); i++) {
+            end += Math.max(1, sizes.get(i));
+            if (valueIndex < end) return names.get(i);
+        }
+        return null;
+    }
+
+    List<String> getNames() {
+        return names;
+    }
+
+    List<Integer> getSizes() {
+        return sizes;
+    }
+}
@@ -0,0 +1,192 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds an object graph from one joined ResultSet in a single pass, replacing the query per
+ * parent of the N+1 pattern:
+ * <pre>
+ * {@code
+ * JoinMapper<Order> mapper = JoinMapper.of("order_id", Order::new, Order::map)
+ *         .join(JoinMapper.of("line_id", Line::new, Line::map)
+ *                 .join(JoinMapper.of("tax_id", Tax::new, Tax::map), Line::addTax), Order::addLine);
+ * List<Order> orders = new SqlQuery<Order>().setSql(
+ *         "SELECT ... FROM orders o LEFT JOIN line l ON ... LEFT JOIN tax t ON ... ORDER BY o.id")
+ *         .executeForList(mapper);
+ * }</pre>
+ * Each level is identified by an integral key column: a row whose key was already seen under
+ * the same parent only maps the nested levels, and a NULL key (LEFT JOIN without match) adds
+ * nothing. Objects are looked up in a long-keyed open-addressing map, and the results keep the
+ * order in which the parents first appear. The definition can be reused and shared.
+ *
+ * @author Marco Rodas
+ */
+public final class JoinMapper<T> {
+
+    private final String keyColumn;
+    private final Supplier<T> objGenerator;
+    private final ThrowingBiConsumer<T, ResultSet> mapper;
+    private final List<Join<T, ?>> joins = new ArrayList<>();
+
+    private JoinMapper(String keyColumn, Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        this.keyColumn = keyColumn;
+        this.objGenerator = objGenerator;
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param keyColumn    Columna (etiqueta) con la llave entera del objeto
+     * @param objGenerator Crea el objeto
+     * @param mapper       Asigna las columnas del objeto, una vez por llave
+     */
+    public static <T> JoinMapper<T> of(String keyColumn, Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        return new JoinMapper<>(keyColumn, objGenerator, mapper);
+    }
+
+    /**
+     * Agrega un nivel hijo
+     *
+     * @param child Definición del hijo (puede tener sus propios hijos)
+     * @param adder Agrega el hijo al padre (ej: Order::addLine)
+     */
+    public <C> JoinMapper<T> join(JoinMapper<C> child, BiConsumer<T, C> adder) {
+        joins.add(new Join<>(child, adder));
+        return this;
+    }
+
+    /**
+     * Lee todas las filas del ResultSet
+     *
+     * @return Objetos raíz en el orden en que aparecen
+     */
+    public List<T> map(ResultSet rs) throws Exception {
+        Level<T> root = new Level<>(this, rs);
+        List<T> list = new ArrayList<>();
+        LongMap<Node<T>> roots = new LongMap<>();
+        while (rs.next()) root.read(rs, roots, list::add);
+        return list;
+    }
+
+    private static class Join<P, C> {
+        private final JoinMapper<C> child;
+        private final BiConsumer<P, C> adder;
+
+        private Join(JoinMapper<C> child, BiConsumer<P, C> adder) {
+            this.child = child;
+            this.adder = adder;
+        }
+    }
+
+    /**
+     * Nivel resuelto para un ResultSet: índice de la llave y niveles hijos
+     */
+    private static class Level<T> {
+        private final JoinMapper<T> definition;
+        private final int keyIndex;
+        private final List<Level<?>> children = new ArrayList<>();
+        private final List<BiConsumer<T, Object>> adders = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        private Level(JoinMapper<T> definition, ResultSet rs) throws SQLException {
+            this.definition = definition;
+            this.keyIndex = rs.findColumn(definition.keyColumn);
+            for (Join<T, ?> join : definition.joins) {
+                children.add(new Level<>(join.child, rs));
+                adders.add((BiConsumer<T, Object>) join.adder);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void read(ResultSet rs, LongMap<Node<T>> nodes, Consumer<T> onNew) throws Exception {
+            long key = rs.getLong(keyIndex);
+            if (rs.wasNull()) return;
+            Node<T> node = nodes.get(key);
+            if (node == null) {
+                T obj = definition.objGenerator.get();
+                definition.mapper.accept(obj, rs);
+                node = new Node<>(obj, children.size());
+                nodes.put(key, node);
+                onNew.accept(obj);
+            }
+            for (int i = 0; i < children.size(); i++) {
+                BiConsumer<T, Object> adder = adders.get(i);
+                T parent = node.obj;
+                Level<Object> child = (Level<Object>) children.get(i);
+                child.read(rs, node.getChildren(i), obj -> adder.accept(parent, obj));
+            }
+        }
+    }
+
+    private static class Node<T> {
+        private final T obj;
+        private final LongMap<?>[] children;
+
+        private Node(T obj, int joins) {
+            this.obj = obj;
+            this.children = new LongMap<?>[joins];
+        }
+
+        @SuppressWarnings("unchecked")
+        private <C> LongMap<Node<C>> getChildren(int join) {
+            if (children[join] == null) children[join] = new LongMap<Node<C>>();
+            return (LongMap<Node<C>>) children[join];
+        }
+    }
+
+    /**
+     * Mapa long -> objeto con direccionamiento abierto (sondeo lineal), sin boxing de llaves
+     */
+    static final class LongMap<V> {
+        private long[] keys = new long[8];
+        private Object[] values = new Object[8];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            int mask = keys.length - 1;
+            for (int i = LongMap.hash(key) & mask; values[i] != null; i = (i + 1) & mask)
+                if (keys[i] == key) return (V) values[i];
+            return null;
+        }
+
+        void put(long key, V value) {
+            if ((size + 1) * 4 > keys.length * 3) this.resize();
+            int mask = keys.length - 1;
+            int i = LongMap.hash(key) & mask;
+            while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (values[i] == null) size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == null) continue;
+                int i = LongMap.hash(oldKeys[j]) & mask;
+                while (values[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package pe.mrodas.jdbc.helper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * Large object parameter bound as a length-aware binary or character stream, so the
+ * driver can send it without buffering the whole content. Also has helpers to copy
+ * result LOBs to a channel, file or writer through a reusable per-thread buffer.
+ * <br>
+ * Closing the Lob closes the underlying file/channel.
+ *
+ * @author Marco Rodas
+ */
+public class Lob implements Closeable {
+
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static ThreadLocal<byte[]> BYTE_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private final static ThreadLocal<char[]> CHAR_BUFFER = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+    private final InputStream stream;
+    private final Reader reader;
+    private final long length;
+
+    private Lob(InputStream stream, Reader reader, long length) {
+        this.stream = stream;
+        this.reader = reader;
+        this.length = length;
+    }
+
+    public static Lob binary(Path file) throws IOException {
+        return Lob.binary(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Lee desde la posición actual del canal hasta el final.
+     *
+     * @param channel Canal de lectura. Se cierra con el Lob
+     */
+    public static Lob binary(FileChannel channel) throws IOException {
+        return new Lob(Channels.newInputStream(channel), null, channel.size() - channel.position());
+    }
+
+    public static Lob binary(InputStream stream, long length) {
+        return new Lob(stream, null, length);
+    }
+
+    /**
+     * El largo en caracteres se obtiene recorriendo el archivo una vez,
+     * sin cargarlo en memoria.
+     */
+    public static Lob character(Path file, Charset charset) throws IOException {
+        long length = 0;
+        char[] buffer = CHAR_BUFFER.get();
+        try (Reader counter = Files.newBufferedReader(file, charset)) {
+            for (int read; (read = counter.read(buffer)) != -1; ) length += read;
+        }
+        return new Lob(null, Files.newBufferedReader(file, charset), length);
+    }
+
+    public static Lob character(Reader reader, long length) {
+        return new Lob(null, reader instanceof BufferedReader ? reader : new BufferedReader(reader), length);
+    }
+
+    public boolean isBinary() {
+        return stream != null;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public void registerIN(PreparedStatement statement, int index) throws SQLException {
+        if (stream != null) statement.setBinaryStream(index, stream, length);
+        else statement.setCharacterStream(index, reader, length);
+    }
+
+    public void registerIN(CallableStatement statement, String name) throws SQLException {
+        if (stream != null) statement.setBinaryStream(name, stream, length);
+        else statement.setCharacterStream(name, reader, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stream != null) stream.close();
+        else reader.close();
+    }
+
+    /**
+     * Copia la columna binaria al canal sin materializarla en memoria.
+     *
+     * @return Número de bytes copiados, -1 si la columna es NULL
+     */
+    public static long transferTo(ResultSet rs, String column, WritableByteChannel target) throws SQLException, IOException {
+        try (InputStream in = rs.getBinaryStream(column)) {
+            return in == null ? -1 : Lob.copy(in, target);
+        }
+    }
+
+    public static long transferTo(ResultSet rs, String column, Path target) throws SQLException, IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return Lob.transferTo(rs, column, out);
+        }
+    }
+
+    /**
+     * Copia la columna de caracteres al writer sin materializarla en memoria.
+     *
+     * @return Número de caracteres copiados, -1 si la columna es NULL
+     */
+    public static long transferTo(ResultSet rs, String column, Writer target) throws SQLException, IOException {
+        try (Reader in = rs.getCharacterStream(column)) {
+            return in == null ? -1 : Lob.copy(in, target);
+        }
+    }
+
+    private static long copy(InputStream in, WritableByteChannel target) throws IOException {
+        byte[] buffer = BYTE_BUFFER.get();
+        ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+        long total = 0;
+        for (int read; (read = in.read(buffer)) != -1; total += read) {
+            wrapper.clear().limit(read);
+            while (wrapper.hasRemaining()) target.write(wrapper);
+        }
+        return total;
+    }
+
+    private static long copy(Reader in, Writer target) throws IOException {
+        char[] buffer = CHAR_BUFFER.get();
+        long total = 0;
+        for (int read; (read = in.read(buffer)) != -1; total += read)
+            target.write(buffer, 0, read);
+        return total;
+    }
+
+    /**
+     * Referencia a una columna LOB de una fila mapeada. El contenido no se lee
+     * hasta que se solicita, por lo que sólo es válida mientras la conexión
+     * siga abierta (usar Autoclose.NO).
+     * <br>
+     * El tipo se toma de ResultSetMetaData: los drivers que informan BLOB/TEXT como
+     * binario o texto (MySQL, bytea/text de PostgreSQL) ya tienen el valor en la fila,
+     * y se lee con getBytes/getString.
+     *
+     * @param rs     ResultSet posicionado en la fila
+     * @param column Nombre de la columna binaria o de caracteres
+     * @return Referencia o null si la columna es NULL
+     */
+    public static Ref lazy(ResultSet rs, String column) throws SQLException {
+        int index = rs.findColumn(column);
+        switch (rs.getMetaData().getColumnType(index)) {
+            case Types.BLOB:
+                Blob blob = rs.getBlob(index);
+                return blob == null ? null : new Ref(blob, null);
+            case Types.CLOB:
+                Clob clob = rs.getClob(index);
+                return clob == null ? null : new Ref(null, clob);
+            case Types.NCLOB:
+                Clob nclob = rs.getNClob(index);
+                return nclob == null ? null : new Ref(null, nclob);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                byte[] bytes = rs.getBytes(index);
+                return bytes == null ? null : new Ref(new SerialBlob(bytes), null);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                String text = rs.getString(index);
+                return text == null ? null : new Ref(null, new SerialClob(text.toCharArray()));
+            default:
+                throw new SQLException(String.format("Column '%s' is not a BLOB/CLOB!", column));
+        }
+    }
+
+    public static class Ref {
+        private final Blob blob;
+        private final Clob clob;
+
+        private Ref(Blob blob, Clob clob) {
+            this.blob = blob;
+            this.clob = clob;
+        }
+
+        public boolean isBinary() {
+            return blob != null;
+        }
+
+        public long length() throws SQLException {
+            return blob != null ? blob.length() : clob.length();
+        }
+
+        public long transferTo(WritableByteChannel target) throws SQLException, IOException {
+            if (blob == null) throw new IOException("CLOB content must be transferred to a Writer!");
+            try (InputStream in = blob.getBinaryStream()) {
+                return Lob.copy(in, target);
+            }
+        }
+
+        public long transferTo(Writer target) throws SQLException, IOException {
+            if (clob == null) throw new IOException("BLOB content must be transferred to a WritableByteChannel!");
+            try (Reader in = clob.getCharacterStream()) {
+                return Lob.copy(in, target);
+            }
+        }
+
+        /**
+         * Un CLOB se escribe en UTF-8
+         */
+        public long transferTo(Path target) throws SQLException, IOException {
+            return this.transferTo(target, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param charset Codificación con la que se escribe un CLOB, no se usa con un BLOB
+         */
+        public long transferTo(Path target, Charset charset) throws SQLException, IOException {
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (blob != null) return this.transferTo(out);
+                try (Writer writer = Channels.newWriter(out, charset.newEncoder(), BUFFER_SIZE)) {
+                    return this.transferTo(writer);
+                }
+            }
+        }
+
+        public void free() throws SQLException {
+            if (blob != null) blob.free();
+            else clob.free();
+        }
+    }
+}
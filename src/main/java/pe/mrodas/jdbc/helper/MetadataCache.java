@@ -0,0 +1,129 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SQL types of the parameters of each prepared SQL ({@link ParameterMetaData}) and of the
+ * columns of each table ({@link DatabaseMetaData#getColumns}), loaded once per data source
+ * (url and user) and used to bind null values without an explicit JDBCType.
+ * <br>
+ * When the driver can't describe a parameter or column, {@link Types#NULL} is used.
+ *
+ * @author Marco Rodas
+ */
+public final class MetadataCache {
+
+    private final static int MAX_ENTRIES = 4096;
+    private final static ConcurrentHashMap<String, int[]> parameters = new ConcurrentHashMap<>();
+    private final static ConcurrentHashMap<String, Map<String, Integer>> tables = new ConcurrentHashMap<>();
+    private final static Map<Connection, String> sources = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private MetadataCache() {
+    }
+
+    public static void clear() {
+        parameters.clear();
+        tables.clear();
+        sources.clear();
+    }
+
+    /**
+     * El usuario se consulta una vez por conexión física (en MySQL es un SELECT USER())
+     */
+    private static String getSource(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Connection physical = metaData.getConnection();
+        String source = sources.get(physical);
+        if (source == null) {
+            source = metaData.getURL() + "|" + metaData.getUserName();
+            sources.put(physical, source);
+        }
+        return source;
+    }
+
+    /**
+     * @param statement Sentencia preparada con <code>sql</code>
+     * @param index     Posición del parámetro (desde 1)
+     * @return Tipo SQL del parámetro
+     */
+    public static int getParameterType(PreparedStatement statement, String sql, int index) throws SQLException {
+        String key = MetadataCache.getSource(statement.getConnection()) + "|" + sql;
+        int[] types = parameters.get(key);
+        if (types == null) {
+            if (parameters.size() >= MAX_ENTRIES) parameters.clear();
+            types = MetadataCache.loadParameterTypes(statement);
+            parameters.put(key, types);
+        }
+        return index > 0 && index <= types.length ? types[index - 1] : Types.NULL;
+    }
+
+    private static int[] loadParameterTypes(PreparedStatement statement) {
+        try {
+            ParameterMetaData metaData = statement.getParameterMetaData();
+            int[] types = new int[metaData.getParameterCount()];
+            for (int i = 0; i < types.length; i++) try {
+                types[i] = metaData.getParameterType(i + 1);
+            } catch (SQLException e) {
+                types[i] = Types.NULL;
+            }
+            return types;
+        } catch (SQLException e) {
+            return new int[0];
+        }
+    }
+
+    /**
+     * @return Tipo SQL de la columna de la tabla
+     */
+    public static int getColumnType(Connection connection, String table, String column) throws SQLException {
+        String key = MetadataCache.getSource(connection) + "|" + table;
+        Map<String, Integer> columns = tables.get(key);
+        if (columns == null) {
+            if (tables.size() >= MAX_ENTRIES) tables.clear();
+            columns = MetadataCache.loadColumnTypes(connection.getMetaData(), table);
+            tables.put(key, columns);
+        }
+        Integer type = columns.get(MetadataCache.normalize(column));
+        return type == null ? Types.NULL : type;
+    }
+
+    private static Map<String, Integer> loadColumnTypes(DatabaseMetaData metaData, String table) throws SQLException {
+        String name = MetadataCache.unquote(table), schema = null;
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            schema = MetadataCache.unquote(name.substring(0, dot));
+            name = MetadataCache.unquote(name.substring(dot + 1));
+        }
+        for (String candidate : new String[]{name, name.toUpperCase(Locale.ROOT), name.toLowerCase(Locale.ROOT)}) {
+            Map<String, Integer> columns = new HashMap<>();
+            try (ResultSet rs = metaData.getColumns(null, schema, candidate, null)) {
+                while (rs.next()) columns.put(MetadataCache.normalize(rs.getString("COLUMN_NAME")), rs.getInt("DATA_TYPE"));
+            }
+            if (!columns.isEmpty()) return Collections.unmodifiableMap(columns);
+        }
+        return Collections.emptyMap();
+    }
+
+    private static String unquote(String name) {
+        String trimmed = name.trim();
+        if (trimmed.length() > 1 && "`\"[".indexOf(trimmed.charAt(0)) >= 0)
+            return trimmed.substring(1, trimmed.length() - 1);
+        return trimmed;
+    }
+
+    private static String normalize(String column) {
+        return MetadataCache.unquote(column).toUpperCase(Locale.ROOT);
+    }
+}
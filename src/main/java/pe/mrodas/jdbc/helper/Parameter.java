@@ -1,6 +1,7 @@
 package pe.mrodas.jdbc.helper;
 
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.sql.CallableStatement;
 import java.sql.JDBCType;
 import java.sql.PreparedStatement;
@@ -36,27 +37,78 @@ public class Parameter<P> {
         return value == null;
     }
 
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement statement, int index, Object value) throws SQLException;
+    }
+
+    /**
+     * JDBCType por clase, resuelto una sola vez por clase
+     */
+    private final static ClassValue<JDBCType> TYPES = new ClassValue<JDBCType>() {
+        @Override
+        protected JDBCType computeValue(Class<?> objClass) {
+            if (objClass == byte[].class) return JDBCType.BLOB;
+            if (objClass == Integer.class) return JDBCType.INTEGER;
+            if (objClass == Long.class) return JDBCType.BIGINT;
+            if (objClass == BigDecimal.class) return JDBCType.DECIMAL;
+            if (objClass == String.class) return JDBCType.VARCHAR;
+            if (objClass == Boolean.class) return JDBCType.BOOLEAN;
+            if (objClass == Double.class) return JDBCType.DOUBLE;
+            if (objClass == Float.class) return JDBCType.FLOAT;
+            if (objClass == InputStream.class) return JDBCType.BLOB;
+            if (objClass == Lob.class) return JDBCType.BLOB;
+            if (objClass == Date.class) return JDBCType.TIMESTAMP;
+            if (objClass == Time.class) return JDBCType.TIME;
+            if (objClass == Timestamp.class) return JDBCType.TIMESTAMP;
+            if (objClass == LocalDate.class) return JDBCType.DATE;
+            if (objClass == LocalTime.class) return JDBCType.TIME;
+            if (objClass == LocalDateTime.class) return JDBCType.TIMESTAMP;
+            return null;
+        }
+    };
+
+    /**
+     * Setter por clase del valor, resuelto una sola vez por clase
+     */
+    private final static ClassValue<Binder> BINDERS = new ClassValue<Binder>() {
+        @Override
+        protected Binder computeValue(Class<?> objClass) {
+            if (objClass == byte[].class) return (st, i, v) -> st.setBytes(i, (byte[]) v);
+            if (objClass == Integer.class) return (st, i, v) -> st.setInt(i, (Integer) v);
+            if (objClass == Long.class) return (st, i, v) -> st.setLong(i, (Long) v);
+            if (objClass == BigDecimal.class) return (st, i, v) -> st.setBigDecimal(i, (BigDecimal) v);
+            if (objClass == String.class) return (st, i, v) -> st.setString(i, (String) v);
+            if (objClass == Boolean.class) return (st, i, v) -> st.setBoolean(i, (Boolean) v);
+            if (objClass == Double.class) return (st, i, v) -> st.setDouble(i, (Double) v);
+            if (objClass == Float.class) return (st, i, v) -> st.setFloat(i, (Float) v);
+            if (Lob.class.isAssignableFrom(objClass)) return (st, i, v) -> ((Lob) v).registerIN(st, i);
+            if (InputStream.class.isAssignableFrom(objClass)) return (st, i, v) -> st.setBlob(i, (InputStream) v);
+            if (objClass == Date.class) return (st, i, v) -> st.setTimestamp(i, new Timestamp(((Date) v).getTime()));
+            if (objClass == Time.class) return (st, i, v) -> st.setTime(i, (Time) v);
+            if (objClass == Timestamp.class) return (st, i, v) -> st.setTimestamp(i, (Timestamp) v);
+            if (objClass == LocalDate.class) return (st, i, v) -> st.setDate(i, java.sql.Date.valueOf((LocalDate) v));
+            if (objClass == LocalTime.class) return (st, i, v) -> st.setTime(i, Time.valueOf((LocalTime) v));
+            if (objClass == LocalDateTime.class)
+                return (st, i, v) -> st.setTimestamp(i, Timestamp.valueOf((LocalDateTime) v));
+            return PreparedStatement::setObject;
+        }
+    };
+
     private JDBCType getJDBCType(Class<?> objClass) throws SQLException {
         if (objClass == null) return null;
-        if (objClass.isArray()) {
-            Class<?> componentType = objClass.getComponentType();
-            if (componentType != null && componentType.isPrimitive())
-                if (byte.class.isAssignableFrom(componentType))
-                    return JDBCType.BLOB;
-        }
-        if (objClass == Integer.class) return JDBCType.INTEGER;
-        if (objClass == String.class) return JDBCType.VARCHAR;
-        if (objClass == Boolean.class) return JDBCType.BOOLEAN;
-        if (objClass == Double.class) return JDBCType.DOUBLE;
-        if (objClass == Float.class) return JDBCType.FLOAT;
-        if (objClass == InputStream.class) return JDBCType.BLOB;
-        if (objClass == Date.class) return JDBCType.TIMESTAMP;
-        if (objClass == Time.class) return JDBCType.TIME;
-        if (objClass == Timestamp.class) return JDBCType.TIMESTAMP;
-        if (objClass == LocalDate.class) return JDBCType.DATE;
-        if (objClass == LocalTime.class) return JDBCType.TIME;
-        if (objClass == LocalDateTime.class) return JDBCType.TIMESTAMP;
-        throw new SQLException("Unable to find JDBCType for '" + objClass.getName() + "' class");
+        JDBCType jdbcType = TYPES.get(objClass);
+        if (jdbcType == null)
+            throw new SQLException("Unable to find JDBCType for '" + objClass.getName() + "' class");
+        return jdbcType;
+    }
+
+    /**
+     * @return true si se definió JDBCType o Class, necesario para registrar un valor nulo
+     * sin consultar la metadata
+     */
+    public boolean isTyped() {
+        return type != null || pClass != null;
     }
 
     public Integer getSqlType() throws SQLException {
@@ -76,10 +128,13 @@ public class Parameter<P> {
                     if (byte.class.isAssignableFrom(componentType))
                         statement.setBytes(name, (byte[]) value);
             } else if (objClass == Integer.class) statement.setInt(name, (Integer) value);
+            else if (objClass == Long.class) statement.setLong(name, (Long) value);
+            else if (objClass == BigDecimal.class) statement.setBigDecimal(name, (BigDecimal) value);
             else if (objClass == String.class) statement.setString(name, (String) value);
             else if (objClass == Boolean.class) statement.setBoolean(name, (Boolean) value);
             else if (objClass == Double.class) statement.setDouble(name, (Double) value);
             else if (objClass == Float.class) statement.setFloat(name, (Float) value);
+            else if (value instanceof Lob) ((Lob) value).registerIN(statement, name);
             else if (value instanceof InputStream) statement.setBlob(name, (InputStream) value);
             else if (objClass == Date.class) {
                 long time = ((Date) value).getTime();
@@ -91,32 +146,23 @@ public class Parameter<P> {
             else if (objClass == LocalTime.class) statement.setTime(name, Time.valueOf((LocalTime) value));
             else if (objClass == LocalDateTime.class)
                 statement.setTimestamp(name, Timestamp.valueOf((LocalDateTime) value));
+            else statement.setObject(name, value);
         }
     }
 
     public void registerIN(PreparedStatement statement, int index) throws SQLException {
-        Class<?> objClass = value.getClass();
-        if (objClass.isArray()) {
-            Class<?> componentType = value.getClass().getComponentType();
-            if (componentType != null && componentType.isPrimitive())
-                if (byte.class.isAssignableFrom(componentType))
-                    statement.setBytes(index, (byte[]) value);
-        } else if (objClass == Integer.class) statement.setInt(index, (Integer) value);
-        else if (objClass == String.class) statement.setString(index, (String) value);
-        else if (objClass == Boolean.class) statement.setBoolean(index, (Boolean) value);
-        else if (objClass == Double.class) statement.setDouble(index, (Double) value);
-        else if (objClass == Float.class) statement.setFloat(index, (Float) value);
-        else if (value instanceof InputStream) statement.setBlob(index, (InputStream) value);
-        else if (objClass == Date.class) {
-            long time = ((Date) value).getTime();
-            statement.setTimestamp(index, new Timestamp(time));
-        } else if (objClass == Time.class) statement.setTime(index, (Time) value);
-        else if (objClass == Timestamp.class) statement.setTimestamp(index, (Timestamp) value);
-        else if (objClass == LocalDate.class)
-            statement.setDate(index, java.sql.Date.valueOf((LocalDate) value));
-        else if (objClass == LocalTime.class) statement.setTime(index, Time.valueOf((LocalTime) value));
-        else if (objClass == LocalDateTime.class)
-            statement.setTimestamp(index, Timestamp.valueOf((LocalDateTime) value));
+        BINDERS.get(value.getClass()).bind(statement, index, value);
+    }
+
+    /**
+     * Igual que {@link #registerIN(PreparedStatement, int)}, pero un valor nulo sin JDBCType ni
+     * Class se registra con el tipo del parámetro según {@link MetadataCache}
+     *
+     * @param sql Sentencia con la que se preparó <code>statement</code>
+     */
+    public void registerIN(PreparedStatement statement, int index, String sql) throws SQLException {
+        if (value != null) this.registerIN(statement, index);
+        else statement.setNull(index, this.isTyped() ? this.getSqlType() : MetadataCache.getParameterType(statement, sql, index));
     }
 
     public void registerOUT(CallableStatement statement, String name) throws SQLException {
@@ -0,0 +1,109 @@
+package pe.mrodas.jdbc.helper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of parsing a query with ":parameter" placeholders: the JDBC
+ * query with "?" markers and the parameter names in bind order (a name appears once
+ * per occurrence). Text inside quotes or comments and "::" casts are left untouched.
+ * <br>
+ * Whether "\" escapes a quote depends on the {@link Dialect} (see {@link SqlString#getStatements(Dialect)}),
+ * so a query with backslashes is parsed again for the dialect of the connection with
+ * {@link #withDialect(Connection)}.
+ *
+ * @author Marco Rodas
+ */
+public final class ParsedSql {
+
+    private final String query, sql;
+    private final List<String> names;
+    private final Dialect dialect;
+
+    private ParsedSql(String query, String sql, List<String> names, Dialect dialect) {
+        this.query = query;
+        this.sql = sql;
+        this.names = Collections.unmodifiableList(names);
+        this.dialect = dialect;
+    }
+
+    /**
+     * Analiza la consulta con SQL estándar: "\" no escapa comillas
+     */
+    public static ParsedSql parse(String query) {
+        return ParsedSql.parse(query, Dialect.OTHER);
+    }
+
+    public static ParsedSql parse(String query, Dialect dialect) {
+        StringBuilder sql = new StringBuilder(query.length());
+        List<String> names = new ArrayList<>();
+        int length = query.length();
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            char next = i + 1 < length ? query.charAt(i + 1) : 0;
+            int end = i;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = SqlString.closingQuote(query, i, dialect);
+            } else if (c == '-' && next == '-') {
+                end = query.indexOf('\n', i);
+            } else if (c == '/' && next == '*') {
+                end = query.indexOf("*/", i + 2);
+                end = end == -1 ? -1 : end + 1;
+            } else if (c == ':' && next == ':') {
+                end = i + 1;
+            } else if (c == ':' && ParsedSql.isNameChar(next)) {
+                end = i + 1;
+                while (end < length && ParsedSql.isNameChar(query.charAt(end))) end++;
+                names.add(query.substring(i + 1, end));
+                sql.append('?');
+                i = end - 1;
+                continue;
+            }
+            end = end == -1 ? length - 1 : end;
+            sql.append(query, i, end + 1);
+            i = end;
+        }
+        return new ParsedSql(query, sql.toString(), names, dialect);
+    }
+
+    /**
+     * La conexión solo se consulta si la consulta tiene "\"
+     *
+     * @return La misma consulta, o la consulta analizada con el dialecto de la conexión si lo lee distinto
+     */
+    public ParsedSql withDialect(Connection connection) throws SQLException {
+        if (query.indexOf('\\') == -1) return this;
+        Dialect target = Dialect.of(connection);
+        return SqlString.sameEscapes(target, dialect) ? this : ParsedSql.parse(query, target);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * @return Query original, con la sintaxis ":parameter"
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return Query con "?" listo para prepararse
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
@@ -0,0 +1,36 @@
+package pe.mrodas.jdbc.helper;
+
+/**
+ * Reactive Streams interfaces with the same shape as <code>java.util.concurrent.Flow</code>
+ * (Java 9), for Java 8. A subscriber of a reactive library can be adapted with a
+ * method reference per method, e.g. to <code>org.reactivestreams</code> or, on Java 9+,
+ * to <code>java.util.concurrent.Flow</code>.
+ *
+ * @author Marco Rodas
+ */
+public final class Reactive {
+
+    private Reactive() {
+    }
+
+    @FunctionalInterface
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        void request(long n);
+
+        void cancel();
+    }
+}
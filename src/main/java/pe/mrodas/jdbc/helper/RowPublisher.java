@@ -0,0 +1,189 @@
+package pe.mrodas.jdbc.helper;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publisher of the rows of one {@link SqlStatement} execution. The statement runs when the
+ * first row is requested, and rows are read from the cursor only as they are requested, so at
+ * most one fetch is held in memory. All JDBC work and the calls to the subscriber happen on
+ * the executor, one task at a time; the subscriber's thread never blocks. Cancelling stops the
+ * running statement and closes the cursor and the connection as soon as the current row ends.
+ * A subscriber whose onNext throws is treated as cancelled: the cursor is closed and no
+ * further signal is sent. Any error, including an Error, closes the cursor and the connection.
+ * The execution is single-use: only one subscriber is accepted.
+ *
+ * @author Marco Rodas
+ */
+final class RowPublisher<T> implements Reactive.Publisher<T> {
+
+    final static ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "row-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final SqlStatement<T> statement;
+    private final Executor executor;
+    private final Supplier<T> objGenerator;
+    private final ThrowingBiConsumer<T, ResultSet> mapper;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    RowPublisher(SqlStatement<T> statement, Executor executor, Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        this.statement = statement;
+        this.executor = executor == null ? EXECUTOR : executor;
+        this.objGenerator = objGenerator;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void subscribe(Reactive.Subscriber<? super T> subscriber) {
+        if (subscriber == null) throw new NullPointerException("Subscriber can't be null!");
+        if (subscribed.compareAndSet(false, true)) subscriber.onSubscribe(new Cursor(subscriber));
+        else {
+            subscriber.onSubscribe(new Reactive.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Publisher already has a subscriber!"));
+        }
+    }
+
+    private class Cursor implements Reactive.Subscription, Runnable {
+        private final Reactive.Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean done;
+        private PreparedStatement prepared;
+        private ResultSet rs;
+        private int rows;
+
+        private Cursor(Reactive.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) invalidRequest = new IllegalArgumentException("Requested rows must be positive, got " + n);
+            else for (long current; ; ) {
+                current = requested.get();
+                long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                if (requested.compareAndSet(current, next)) break;
+            }
+            this.schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // the cursor is closed when the current row ends
+            }
+            this.schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                wip.set(0);
+                cancelled = true;
+                subscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = wip.get();
+            do {
+                this.drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) return;
+            try {
+                if (cancelled) {
+                    this.finish(null, false);
+                    return;
+                }
+                if (invalidRequest != null) {
+                    this.finish(invalidRequest, true);
+                    return;
+                }
+                if (rs == null && requested.get() > 0) {
+                    prepared = statement.executeStatement();
+                    rs = prepared.getResultSet();
+                    if (rs == null) {
+                        this.finish(null, true);
+                        return;
+                    }
+                }
+                while (rs != null && requested.get() > 0 && !cancelled && invalidRequest == null) {
+                    if (!rs.next()) {
+                        FetchSizeTuner.record(statement.getPreparedSql(), rs, rows);
+                        this.finish(null, true);
+                        return;
+                    }
+                    T obj = objGenerator.get();
+                    mapper.accept(obj, rs);
+                    rows++;
+                    if (requested.get() != Long.MAX_VALUE) requested.decrementAndGet();
+                    try {
+                        subscriber.onNext(obj);
+                    } catch (Throwable e) {
+                        // regla 2.13: el subscriber falló, se trata como una cancelación
+                        cancelled = true;
+                    }
+                }
+                if (cancelled) this.finish(null, false);
+                else if (invalidRequest != null) this.finish(invalidRequest, true);
+            } catch (SQLException e) {
+                this.finish(statement.buildCallableException(e), !cancelled);
+            } catch (IOException e) {
+                this.finish(e, !cancelled);
+            } catch (Exception e) {
+                this.finish(new IOException("Mapping Error: " + e.getMessage(), e), !cancelled);
+            } catch (Throwable e) {
+                this.finish(e, !cancelled);
+            }
+        }
+
+        private void finish(Throwable error, boolean signal) {
+            done = true;
+            if (rs != null) try {
+                rs.close();
+            } catch (SQLException ignored) {
+            }
+            if (prepared != null) try {
+                prepared.close();
+            } catch (SQLException ignored) {
+            }
+            statement.close();
+            if (!signal) return;
+            if (error == null) subscriber.onComplete();
+            else subscriber.onError(error);
+        }
+    }
+}
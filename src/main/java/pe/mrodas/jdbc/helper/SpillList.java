@@ -0,0 +1,150 @@
+package pe.mrodas.jdbc.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only list that keeps the first <code>heapRows</code> elements in memory
+ * and serializes the rest, in pages of <code>pageRows</code> elements, to a temporary
+ * file. Pages are read back through a memory-mapped buffer on access, keeping only
+ * the last page used in heap.
+ * <br>
+ * Elements must be {@link java.io.Serializable}. The temporary file is deleted
+ * on {@link #close()}, or when the list is garbage collected without being closed.
+ *
+ * @author Marco Rodas
+ */
+public class SpillList<T> extends AbstractList<T> implements AutoCloseable {
+
+    public final static int DEFAULT_PAGE_ROWS = 1000;
+    private final int heapRows, pageRows;
+    private final List<T> heap = new ArrayList<>();
+    private final List<Long> pageOffsets = new ArrayList<>();
+    private List<T> buffer = new ArrayList<>();
+    private List<T> cachedPage;
+    private int cachedPageIdx = -1, size;
+    private Path file;
+    private FileChannel channel;
+
+    public SpillList(int heapRows, int pageRows) {
+        if (heapRows < 0) throw new IllegalArgumentException("heapRows can't be negative!");
+        if (pageRows < 1) throw new IllegalArgumentException("pageRows must be greater than 0!");
+        this.heapRows = heapRows;
+        this.pageRows = pageRows;
+    }
+
+    public SpillList(int heapRows) {
+        this(heapRows, DEFAULT_PAGE_ROWS);
+    }
+
+    /**
+     * Agrega un elemento al final de la lista. Si el presupuesto en memoria
+     * fue superado, el elemento va a la página en curso, que se escribe a disco al llenarse.
+     *
+     * @param element Elemento serializable
+     * @throws IOException Si el elemento no es serializable o falla la escritura
+     */
+    public void append(T element) throws IOException {
+        if (heap.size() < heapRows) heap.add(element);
+        else {
+            buffer.add(element);
+            if (buffer.size() == pageRows) this.flushBuffer();
+        }
+        size++;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (channel == null) {
+            file = Files.createTempFile("jdbc-easy-", ".spill");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(buffer);
+        }
+        long offset = channel.size();
+        ByteBuffer page = ByteBuffer.wrap(bytes.toByteArray());
+        while (page.hasRemaining()) channel.write(page, offset + page.position());
+        pageOffsets.add(offset);
+        buffer = new ArrayList<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> readPage(int pageIdx) throws IOException {
+        if (channel == null) throw new IOException("SpillList is already closed!");
+        long offset = pageOffsets.get(pageIdx);
+        long end = pageIdx + 1 < pageOffsets.size() ? pageOffsets.get(pageIdx + 1) : channel.size();
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, end - offset);
+        byte[] bytes = new byte[mapped.remaining()];
+        mapped.get(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (List<T>) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Spilled page can't be read! - " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, size));
+        if (index < heap.size()) return heap.get(index);
+        int spilledIdx = index - heap.size();
+        int pageIdx = spilledIdx / pageRows;
+        if (pageIdx == pageOffsets.size()) return buffer.get(spilledIdx % pageRows);
+        if (pageIdx != cachedPageIdx) try {
+            cachedPage = this.readPage(pageIdx);
+            cachedPageIdx = pageIdx;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return cachedPage.get(spilledIdx % pageRows);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cachedPage = null;
+        cachedPageIdx = -1;
+        if (channel != null) try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file);
+            channel = null;
+        }
+    }
+
+    /**
+     * Elimina el archivo temporal si la lista no se cerró
+     */
+    @Override
+    protected void finalize() throws Throwable {
+        try {
+            this.close();
+        } finally {
+            super.finalize();
+        }
+    }
+}
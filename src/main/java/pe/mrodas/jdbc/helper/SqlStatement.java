@@ -9,6 +9,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import pe.mrodas.jdbc.Connector;
@@ -17,6 +18,9 @@ public abstract class SqlStatement<T> {
 
     private Connection connection;
     private Autoclose autoclose;
+    private int timeout, fetchSize;
+    private String sql;
+    private final Cancellation cancellation = new Cancellation();
 
     public SqlStatement(Connection connection, Autoclose autoclose) {
         this.connection = connection;
@@ -32,10 +36,66 @@ public abstract class SqlStatement<T> {
         return connection;
     }
 
+    /**
+     * @param seconds Timeout de la sentencia (0: sin timeout). Dentro de un {@link Deadline}
+     *                se usa el menor entre este valor y el tiempo restante
+     */
+    public SqlStatement<T> setTimeout(int seconds) {
+        this.timeout = seconds;
+        return this;
+    }
+
+    /**
+     * @param rows Filas por round-trip. Por defecto se calcula con {@link FetchSizeTuner}.
+     *             En MySQL solo tiene efecto con useCursorFetch=true en la url
+     */
+    public SqlStatement<T> setFetchSize(int rows) {
+        this.fetchSize = rows;
+        return this;
+    }
+
+    /**
+     * Cancela la sentencia en ejecución desde otro hilo. Si aún no se ejecutó,
+     * fallará al ejecutarse.
+     */
+    public void cancel() throws SQLException {
+        cancellation.cancel();
+    }
+
+    /**
+     * Aplica el timeout y el fetch size a la sentencia y la registra para {@link #cancel()}.
+     * Debe llamarse antes de ejecutarla.
+     *
+     * @param sql Sentencia preparada, identifica las estadísticas de {@link FetchSizeTuner}
+     */
+    protected <S extends Statement> S prepare(S statement, String sql) throws SQLException {
+        cancellation.start(statement, timeout);
+        int rows = fetchSize > 0 ? fetchSize : FetchSizeTuner.getFetchSize(sql, statement.getConnection());
+        if (rows > 0) statement.setFetchSize(rows);
+        this.sql = sql;
+        return statement;
+    }
+
+    String getPreparedSql() {
+        return sql;
+    }
+
     protected abstract SQLException buildCallableException(SQLException e);
 
     protected abstract PreparedStatement executeStatement() throws IOException, SQLException;
 
+    /**
+     * Ejecuta la sentencia. Si falla cierra la conexión, y con ella libera su permiso del bulkhead.
+     */
+    protected PreparedStatement open() throws IOException, SQLException {
+        try {
+            return this.executeStatement();
+        } catch (Throwable e) {
+            this.close();
+            throw e;
+        }
+    }
+
     protected T run(Callable<T> callable) throws SQLException, IOException {
         try {
             return callable.call();
@@ -62,23 +122,28 @@ public abstract class SqlStatement<T> {
 
     public T execute(Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) throws IOException, SQLException {
         T obj = objGenerator.get();
-        PreparedStatement statement = this.executeStatement();
+        PreparedStatement statement = this.open();
         ResultSet rs = statement.getResultSet();
         return this.run(() -> {
-            if (rs.next()) mapper.accept(obj, rs);
+            int rows = 0;
+            if (rs.next()) {
+                mapper.accept(obj, rs);
+                rows++;
+            }
+            FetchSizeTuner.record(sql, rs, rows);
             return obj;
         });
     }
 
     public T execute(ThrowingBiFunction<PreparedStatement, ResultSet, T> executor) throws IOException, SQLException {
-        PreparedStatement statement = this.executeStatement();
+        PreparedStatement statement = this.open();
         ResultSet rs = statement.getResultSet();
         return this.run(() -> executor.apply(statement, rs));
     }
 
     public List<T> executeForList(Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) throws IOException, SQLException {
         List<T> list = new ArrayList<>();
-        PreparedStatement statement = this.executeStatement();
+        PreparedStatement statement = this.open();
         ResultSet rs = statement.getResultSet();
         return this.runForList(() -> {
             while (rs.next()) {
@@ -86,16 +151,76 @@ public abstract class SqlStatement<T> {
                 mapper.accept(obj, rs);
                 list.add(obj);
             }
+            FetchSizeTuner.record(sql, rs, list.size());
             return list;
         });
     }
 
+    /**
+     * Igual que {@link #executeForList(Supplier, ThrowingBiConsumer)} pero sólo mantiene
+     * <code>heapRows</code> filas en memoria. Las demás se escriben en páginas a un archivo
+     * temporal y se leen bajo demanda. Cerrar la lista elimina el archivo.
+     *
+     * @param heapRows Máximo de filas en memoria
+     * @return SpillList con todas las filas del resultado
+     */
+    public SpillList<T> executeForList(int heapRows, Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) throws IOException, SQLException {
+        SpillList<T> list = new SpillList<>(heapRows);
+        PreparedStatement statement = this.open();
+        ResultSet rs = statement.getResultSet();
+        try {
+            this.runForList(() -> {
+                while (rs.next()) {
+                    T obj = objGenerator.get();
+                    mapper.accept(obj, rs);
+                    list.append(obj);
+                }
+                FetchSizeTuner.record(sql, rs, list.size());
+                return list;
+            });
+        } catch (SQLException | IOException e) {
+            list.close();
+            throw e;
+        }
+        return list;
+    }
+
+    /**
+     * Arma objetos con sus colecciones hijas a partir de un único ResultSet con JOINs,
+     * en una sola pasada
+     *
+     * @param mapper Definición de la llave y los niveles hijos de cada objeto
+     */
+    public List<T> executeForList(JoinMapper<T> mapper) throws IOException, SQLException {
+        PreparedStatement statement = this.open();
+        ResultSet rs = statement.getResultSet();
+        return this.runForList(() -> mapper.map(rs));
+    }
+
     public List<T> executeForList(ThrowingBiFunction<PreparedStatement, ResultSet, List<T>> executor) throws IOException, SQLException {
-        PreparedStatement statement = this.executeStatement();
+        PreparedStatement statement = this.open();
         ResultSet rs = statement.getResultSet();
         return this.runForList(() -> executor.apply(statement, rs));
     }
 
+    /**
+     * Publica las filas bajo demanda: la sentencia se ejecuta al pedir la primera fila y cada
+     * fila se lee del cursor sólo cuando el subscriber la pide. El trabajo JDBC se hace en un
+     * pool propio y acotado. Cancelar la suscripción cierra el cursor y libera la conexión.
+     *
+     * @return Publisher de un solo uso (acepta un subscriber)
+     */
+    public Reactive.Publisher<T> publish(Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        return new RowPublisher<>(this, null, objGenerator, mapper);
+    }
+
+    /**
+     * @param executor Ejecutor del trabajo JDBC, debe ser acotado (las tareas bloquean)
+     */
+    public Reactive.Publisher<T> publish(Executor executor, Supplier<T> objGenerator, ThrowingBiConsumer<T, ResultSet> mapper) {
+        return new RowPublisher<>(this, executor, objGenerator, mapper);
+    }
+
     public static void onMoreResults(Statement statement, ThrowingConsumer<ResultSet> consumer) throws Exception {
         if (!statement.getMoreResults()) return;
         ResultSet rs = statement.getResultSet();
@@ -121,7 +246,8 @@ public abstract class SqlStatement<T> {
     }
 
     protected void close() {
-        if (this.autoclose == Autoclose.YES) try {
+        cancellation.finish();
+        if (this.autoclose == Autoclose.YES && connection != null) try {
             connection.close();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -7,19 +7,28 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * Convenience class to handle 2 situations:
+ * Convenience class to handle 4 situations:
  * 1. Converts .sql to String[] for SqlQuery<...>.setSql(new String[]{...})
  * 2. Converts String[] to .sql
+ * 3. Splits a .sql with "-- name: queryName" markers into named queries
+ * 4. Splits a script into statements (see {@link #getStatements()})
  *
  * @author Marco Rodas
  */
 public class SqlString {
 
+    private final static Pattern NAME_MARKER = Pattern.compile("^\\s*--\\s*name:\\s*(\\S+)\\s*$");
+    private final static Pattern DELIMITER = Pattern.compile("^[ \\t]*DELIMITER[ \\t]+(\\S+)[ \\t]*(\\r?\\n|$)", Pattern.CASE_INSENSITIVE);
+    private final static Pattern DOLLAR_TAG = Pattern.compile("\\$([A-Za-z_][A-Za-z0-9_]*)?\\$");
     private final List<String> lines;
 
     public SqlString(String file) throws InvalidPathException, IOException {
@@ -45,6 +54,147 @@ public class SqlString {
         return String.join("\n", sqlLines);
     }
 
+    /**
+     * Separa el contenido en consultas con nombre, cada una precedida por
+     * una línea con el marcador "-- name: queryName". Se ignoran las líneas
+     * anteriores al primer marcador y el ";" final de cada consulta.
+     *
+     * @return Consultas por nombre, en el orden del archivo
+     * @throws IOException Si un nombre está vacío o se repite
+     */
+    public Map<String, String> getNamedQueries() throws IOException {
+        Map<String, String> queries = new LinkedHashMap<>();
+        String name = null;
+        List<String> body = new ArrayList<>();
+        for (String line : lines) {
+            Matcher matcher = NAME_MARKER.matcher(line);
+            if (matcher.matches()) {
+                SqlString.putQuery(queries, name, body);
+                name = matcher.group(1);
+                body.clear();
+            } else if (name != null) body.add(line);
+        }
+        SqlString.putQuery(queries, name, body);
+        return queries;
+    }
+
+    private static void putQuery(Map<String, String> queries, String name, List<String> body) throws IOException {
+        if (name == null) return;
+        String query = String.join("\n", body).trim();
+        if (query.endsWith(";")) query = query.substring(0, query.length() - 1).trim();
+        if (query.isEmpty()) throw new IOException(String.format("Query '%s' can't be empty!", name));
+        if (queries.put(name, query) != null)
+            throw new IOException(String.format("Duplicated query name '%s'!", name));
+    }
+
+    /**
+     * Igual que {@link #getStatements(Dialect)} con SQL estándar: "\" no escapa comillas
+     */
+    public List<String> getStatements() {
+        return this.getStatements(Dialect.OTHER);
+    }
+
+    /**
+     * Separa el contenido en sentencias terminadas en ";". No se separa dentro de comillas
+     * ('', "", ``, con escapes \' y \" en MySQL o en E'' de PostgreSQL), comentarios de línea o
+     * de bloque ni bloques $$ o $tag$ de PostgreSQL. Una línea "DELIMITER //" (como en el
+     * cliente de MySQL) cambia el separador de las siguientes sentencias. Se omiten las
+     * sentencias vacías o que solo tienen comentarios.
+     *
+     * @param dialect Define si "\" escapa comillas
+     * @return Sentencias sin el separador final, en el orden del archivo
+     */
+    public List<String> getStatements(Dialect dialect) {
+        String script = String.join("\n", lines);
+        List<String> statements = new ArrayList<>();
+        String delimiter = ";";
+        int length = script.length(), start = 0;
+        boolean hasCode = false;
+        for (int i = 0; i < length; i++) {
+            char c = script.charAt(i);
+            char next = i + 1 < length ? script.charAt(i + 1) : 0;
+            if (i == 0 || script.charAt(i - 1) == '\n') {
+                Matcher matcher = DELIMITER.matcher(script).region(i, length);
+                if (matcher.lookingAt()) {
+                    SqlString.addStatement(statements, script.substring(start, i), hasCode);
+                    delimiter = matcher.group(1);
+                    start = matcher.end();
+                    hasCode = false;
+                    i = start - 1;
+                    continue;
+                }
+            }
+            if (script.startsWith(delimiter, i)) {
+                SqlString.addStatement(statements, script.substring(start, i), hasCode);
+                start = i + delimiter.length();
+                hasCode = false;
+                i = start - 1;
+                continue;
+            }
+            int end = i;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = SqlString.closingQuote(script, i, dialect);
+            } else if (c == '-' && next == '-') {
+                end = script.indexOf('\n', i);
+                end = end == -1 ? -1 : end - 1;
+            } else if (c == '/' && next == '*') {
+                end = script.indexOf("*/", i + 2);
+                end = end == -1 ? -1 : end + 1;
+            } else if (c == '$') {
+                Matcher matcher = DOLLAR_TAG.matcher(script).region(i, length);
+                if (matcher.lookingAt()) {
+                    end = script.indexOf(matcher.group(), matcher.end());
+                    end = end == -1 ? -1 : end + matcher.group().length() - 1;
+                }
+            }
+            boolean comment = end != i && c != '\'' && c != '"' && c != '`' && c != '$';
+            if (!comment && !Character.isWhitespace(c)) hasCode = true;
+            i = end == -1 ? length - 1 : end;
+        }
+        SqlString.addStatement(statements, script.substring(start), hasCode);
+        return statements;
+    }
+
+    /**
+     * Las comillas duplicadas ('it''s') se leen como dos literales seguidos. En MySQL "\" escapa
+     * el siguiente carácter en '' y "", en PostgreSQL solo en los literales E''.
+     *
+     * @param open Posición de la comilla que abre el literal
+     * @return Posición de la comilla que lo cierra, o -1 si no se cierra
+     */
+    static int closingQuote(String sql, int open, Dialect dialect) {
+        char quote = sql.charAt(open);
+        boolean escapes = quote != '`' && (dialect == Dialect.MYSQL
+                || dialect == Dialect.POSTGRESQL && quote == '\'' && SqlString.isEscapeString(sql, open));
+        for (int i = open + 1; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\\' && escapes) i++;
+            else if (c == quote) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true si los dos dialectos leen igual los "\" dentro de comillas
+     */
+    static boolean sameEscapes(Dialect a, Dialect b) {
+        return a == b || a != Dialect.MYSQL && a != Dialect.POSTGRESQL && b != Dialect.MYSQL && b != Dialect.POSTGRESQL;
+    }
+
+    /**
+     * @return true si la comilla tiene el prefijo E de PostgreSQL (E'..'), y no es el final de un nombre
+     */
+    private static boolean isEscapeString(String sql, int open) {
+        if (open == 0 || Character.toUpperCase(sql.charAt(open - 1)) != 'E') return false;
+        if (open == 1) return true;
+        char before = sql.charAt(open - 2);
+        return !Character.isLetterOrDigit(before) && before != '_';
+    }
+
+    private static void addStatement(List<String> statements, String statement, boolean hasCode) {
+        if (hasCode) statements.add(statement.trim());
+    }
+
     public static String arrayToSql(String... strings) {
         return String.join("\n", strings);
     }
@@ -0,0 +1,380 @@
+package pe.mrodas.jdbc.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import pe.mrodas.jdbc.annotation.Call;
+import pe.mrodas.jdbc.annotation.Dao;
+import pe.mrodas.jdbc.annotation.Sql;
+import pe.mrodas.jdbc.helper.Dialect;
+import pe.mrodas.jdbc.helper.ParsedSql;
+import pe.mrodas.jdbc.helper.SqlString;
+
+/**
+ * Generates &lt;Interface&gt;Impl classes for interfaces annotated with {@link Dao}.
+ * Queries are parsed at compile time, so generated methods prepare a constant "?" query,
+ * bind each method parameter to a fixed index with its typed setter and map rows by column
+ * index, either to a scalar type (first column) or through the public constructor of the
+ * row type with most parameters (one per column, in select order).
+ * <br>
+ * Abstract methods inherited from super-interfaces are implemented too.
+ * <br>
+ * A leading {@link java.sql.Connection} parameter is used as is and not closed, otherwise
+ * the connection comes from {@link pe.mrodas.jdbc.Connector#getConnection()}. Methods must
+ * declare <code>throws IOException, SQLException</code>.
+ * <br>
+ * The processor is not registered as a service, enable it explicitly:
+ * <pre>
+ * {@code
+ * <plugin>
+ *     <artifactId>maven-compiler-plugin</artifactId>
+ *     <configuration>
+ *         <annotationProcessors>
+ *             <annotationProcessor>pe.mrodas.jdbc.processor.DaoProcessor</annotationProcessor>
+ *         </annotationProcessors>
+ *         <compilerArgs>
+ *             <arg>-Ajdbc.driver=com.mysql.jdbc.Driver</arg>
+ *         </compilerArgs>
+ *     </configuration>
+ * </plugin>
+ * }</pre>
+ * The optional <code>jdbc.driver</code> (a driver class or JDBC url) selects the {@link Dialect}
+ * the queries are parsed with, e.g. "\" escapes quotes only on MySQL.
+ *
+ * @author Marco Rodas
+ */
+@SupportedAnnotationTypes("pe.mrodas.jdbc.annotation.Dao")
+@SupportedOptions(DaoProcessor.DRIVER_OPTION)
+public class DaoProcessor extends AbstractProcessor {
+
+    final static String DRIVER_OPTION = "jdbc.driver";
+    private final static Map<String, String[]> TYPES = new HashMap<>();
+
+    static {
+        // type: setter, getter, java.sql.Types constant[, java.sql value, conversion of the value read]
+        TYPES.put("int", new String[]{"setInt", "getInt", "INTEGER"});
+        TYPES.put("long", new String[]{"setLong", "getLong", "BIGINT"});
+        TYPES.put("double", new String[]{"setDouble", "getDouble", "DOUBLE"});
+        TYPES.put("float", new String[]{"setFloat", "getFloat", "FLOAT"});
+        TYPES.put("short", new String[]{"setShort", "getShort", "SMALLINT"});
+        TYPES.put("boolean", new String[]{"setBoolean", "getBoolean", "BOOLEAN"});
+        TYPES.put("java.lang.Integer", new String[]{"setInt", null, "INTEGER"});
+        TYPES.put("java.lang.Long", new String[]{"setLong", null, "BIGINT"});
+        TYPES.put("java.lang.Double", new String[]{"setDouble", null, "DOUBLE"});
+        TYPES.put("java.lang.Float", new String[]{"setFloat", null, "FLOAT"});
+        TYPES.put("java.lang.Short", new String[]{"setShort", null, "SMALLINT"});
+        TYPES.put("java.lang.Boolean", new String[]{"setBoolean", null, "BOOLEAN"});
+        TYPES.put("java.lang.String", new String[]{"setString", "getString", "VARCHAR"});
+        TYPES.put("java.math.BigDecimal", new String[]{"setBigDecimal", "getBigDecimal", "DECIMAL"});
+        TYPES.put("byte[]", new String[]{"setBytes", "getBytes", "VARBINARY"});
+        TYPES.put("java.sql.Timestamp", new String[]{"setTimestamp", "getTimestamp", "TIMESTAMP"});
+        TYPES.put("java.sql.Date", new String[]{"setDate", "getDate", "DATE"});
+        TYPES.put("java.sql.Time", new String[]{"setTime", "getTime", "TIME"});
+        TYPES.put("java.time.LocalDate", new String[]{"setDate", "getDate", "DATE",
+                "java.sql.Date.valueOf(%s)", "java.sql.Date::toLocalDate"});
+        TYPES.put("java.time.LocalTime", new String[]{"setTime", "getTime", "TIME",
+                "java.sql.Time.valueOf(%s)", "java.sql.Time::toLocalTime"});
+        TYPES.put("java.time.LocalDateTime", new String[]{"setTimestamp", "getTimestamp", "TIMESTAMP",
+                "java.sql.Timestamp.valueOf(%s)", "java.sql.Timestamp::toLocalDateTime"});
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Dao.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                this.error(element, "@Dao can only be applied to interfaces!");
+                continue;
+            }
+            try {
+                this.generate((TypeElement) element);
+            } catch (ProcessorException e) {
+                this.error(e.element, e.getMessage());
+            } catch (IOException e) {
+                this.error(element, "Error writing implementation! - " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void generate(TypeElement dao) throws IOException, ProcessorException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(dao);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String implName = dao.getSimpleName() + "Impl";
+        List<String> constants = new ArrayList<>();
+        StringBuilder methods = new StringBuilder();
+        for (ExecutableElement method : this.getMethods(dao)) {
+            Sql sql = method.getAnnotation(Sql.class);
+            Call call = method.getAnnotation(Call.class);
+            if (sql == null && call == null)
+                throw new ProcessorException(method, "Method must be annotated with @Sql or @Call!");
+            this.checkThrows(method);
+            String constant = "SQL_" + constants.size();
+            if (call != null) {
+                constants.add(this.getCall(method, call));
+                this.writeMethod(methods, dao, method, constant, this.getCallBindOrder(method), true);
+            } else {
+                Dialect dialect = Dialect.of(processingEnv.getOptions().get(DRIVER_OPTION));
+                ParsedSql parsed = ParsedSql.parse(this.getQuery(method, sql), dialect);
+                constants.add(parsed.getSql());
+                String head = parsed.getSql().trim().toUpperCase();
+                boolean select = head.startsWith("SELECT") || head.startsWith("WITH");
+                this.writeMethod(methods, dao, method, constant, parsed.getNames(), select);
+            }
+        }
+        FileObject file = processingEnv.getFiler().createSourceFile(
+                packageName.isEmpty() ? implName : packageName + "." + implName, dao);
+        try (Writer writer = file.openWriter(); PrintWriter out = new PrintWriter(writer)) {
+            if (!packageName.isEmpty()) out.printf("package %s;%n%n", packageName);
+            out.printf("/**%n * Generated by %s. Don't edit.%n */%n", DaoProcessor.class.getName());
+            out.printf("public class %s implements %s {%n", implName, dao.getQualifiedName());
+            for (int i = 0; i < constants.size(); i++)
+                out.printf("%n    private final static String SQL_%s = \"%s\";", i, this.escape(constants.get(i)));
+            out.printf("%n%s}%n", methods);
+        }
+    }
+
+    /**
+     * Métodos abstractos de la interfaz, incluidos los heredados de sus super-interfaces.
+     * Un método redefinido en una sub-interfaz se toma una sola vez, de la más específica.
+     */
+    private List<ExecutableElement> getMethods(TypeElement dao) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        this.collectMethods(dao, dao, methods);
+        return methods;
+    }
+
+    private void collectMethods(TypeElement dao, TypeElement type, List<ExecutableElement> methods) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.DEFAULT) || method.getModifiers().contains(Modifier.STATIC))
+                continue;
+            boolean overridden = methods.stream().anyMatch(m -> m.getSimpleName().equals(method.getSimpleName())
+                    && processingEnv.getElementUtils().overrides(m, method, dao));
+            if (!overridden) methods.add(method);
+        }
+        for (TypeMirror parent : type.getInterfaces())
+            this.collectMethods(dao, (TypeElement) ((DeclaredType) parent).asElement(), methods);
+    }
+
+    private void checkThrows(ExecutableElement method) throws ProcessorException {
+        for (Class<?> required : Arrays.asList(IOException.class, SQLException.class)) {
+            TypeMirror requiredType = processingEnv.getElementUtils().getTypeElement(required.getName()).asType();
+            boolean declared = method.getThrownTypes().stream()
+                    .anyMatch(t -> processingEnv.getTypeUtils().isSubtype(requiredType, t));
+            if (!declared)
+                throw new ProcessorException(method, "Method must declare 'throws IOException, SQLException'!");
+        }
+    }
+
+    private String getQuery(ExecutableElement method, Sql sql) throws ProcessorException {
+        if (!sql.value().trim().isEmpty()) return sql.value();
+        if (sql.name().isEmpty() || sql.resource().isEmpty())
+            throw new ProcessorException(method, "@Sql needs a query or both name and resource!");
+        for (StandardLocation location : Arrays.asList(StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH))
+            try (InputStream stream = processingEnv.getFiler().getResource(location, "", sql.resource()).openInputStream();
+                 Scanner scanner = new Scanner(stream, StandardCharsets.UTF_8.name())) {
+                List<String> lines = new ArrayList<>();
+                while (scanner.hasNextLine()) lines.add(scanner.nextLine());
+                String query = new SqlString(lines.toArray(new String[0])).getNamedQueries().get(sql.name());
+                if (query == null) throw new ProcessorException(method,
+                        String.format("Query '%s' not found in '%s'!", sql.name(), sql.resource()));
+                return query;
+            } catch (IOException | IllegalArgumentException e) {
+                if (location == StandardLocation.SOURCE_PATH) throw new ProcessorException(method,
+                        String.format("Resource '%s' can't be read! - %s", sql.resource(), e.getMessage()));
+            }
+        return null;
+    }
+
+    private String getCall(ExecutableElement method, Call call) {
+        List<String> params = new ArrayList<>();
+        for (String ignored : this.getCallBindOrder(method)) params.add("?");
+        return String.format("{CALL %s(%s)}", call.value().trim(), String.join(", ", params));
+    }
+
+    private List<String> getCallBindOrder(ExecutableElement method) {
+        List<String> names = new ArrayList<>();
+        for (VariableElement param : method.getParameters())
+            if (!this.isConnection(param.asType())) names.add(param.getSimpleName().toString());
+        return names;
+    }
+
+    private boolean isConnection(TypeMirror type) {
+        return type.toString().equals("java.sql.Connection");
+    }
+
+    private void writeMethod(StringBuilder out, TypeElement dao, ExecutableElement method, String constant, List<String> bindOrder, boolean select) throws ProcessorException {
+        // tipos vistos desde la interfaz @Dao, con los parámetros de tipo de las super-interfaces resueltos
+        ExecutableType member = (ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) dao.asType(), method);
+        Map<String, VariableElement> params = new HashMap<>();
+        Map<String, TypeMirror> paramTypes = new HashMap<>();
+        List<String> signature = new ArrayList<>();
+        String connection = null;
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            VariableElement param = method.getParameters().get(i);
+            TypeMirror type = member.getParameterTypes().get(i);
+            String name = param.getSimpleName().toString();
+            if (connection == null && signature.isEmpty() && this.isConnection(type)) connection = name;
+            else {
+                params.put(name, param);
+                paramTypes.put(name, type);
+            }
+            signature.add(String.format("%s %s", type, name));
+        }
+        List<String> thrown = new ArrayList<>();
+        member.getThrownTypes().forEach(t -> thrown.add(t.toString()));
+        TypeMirror returnType = member.getReturnType();
+        out.append(String.format("%n    @Override%n    public %s %s(%s) throws %s {%n", returnType,
+                method.getSimpleName(), String.join(", ", signature), String.join(", ", thrown)));
+        String conn = connection == null ? "connection" : connection;
+        if (connection == null)
+            out.append("        java.sql.Connection connection = pe.mrodas.jdbc.Connector.getConnection();\n");
+        String indent = connection == null ? "            " : "        ";
+        if (connection == null) out.append("        try {\n");
+        String prepare = method.getAnnotation(Call.class) != null ? "prepareCall" : "prepareStatement";
+        out.append(String.format("%stry (java.sql.PreparedStatement statement = %s.%s(%s)) {%n", indent, conn, prepare, constant));
+        for (int i = 0; i < bindOrder.size(); i++) {
+            VariableElement param = params.get(bindOrder.get(i));
+            if (param == null)
+                throw new ProcessorException(method, String.format("Missing parameter '%s'!", bindOrder.get(i)));
+            out.append(this.getBinder(param, paramTypes.get(bindOrder.get(i)), i + 1, indent + "    "));
+        }
+        this.writeExecution(out, method, returnType, select, indent + "    ");
+        out.append(indent).append("}\n");
+        if (connection == null) out.append("        } finally {\n            connection.close();\n        }\n");
+        out.append("    }\n");
+    }
+
+    private String getBinder(VariableElement param, TypeMirror paramType, int index, String indent) throws ProcessorException {
+        String type = paramType.toString();
+        String name = param.getSimpleName().toString();
+        String[] info = TYPES.get(type);
+        if (info == null) throw new ProcessorException(param, String.format("Unsupported parameter type '%s'!", type));
+        String value = info.length > 3 ? String.format(info[3], name) : name;
+        String setter = String.format("statement.%s(%s, %s);", info[0], index, value);
+        if (paramType.getKind().isPrimitive()) return indent + setter + "\n";
+        return String.format("%sif (%s == null) statement.setNull(%s, java.sql.Types.%s);%n%selse %s%n",
+                indent, name, index, info[2], indent, setter);
+    }
+
+    private void writeExecution(StringBuilder out, ExecutableElement method, TypeMirror returnType, boolean select, String indent) throws ProcessorException {
+        TypeKind kind = returnType.getKind();
+        if (select) this.writeSelect(out, method, returnType, indent);
+        else if (kind == TypeKind.VOID) out.append(indent).append("statement.execute();\n");
+        else if (kind == TypeKind.INT) out.append(indent).append("return statement.executeUpdate();\n");
+        else if (kind == TypeKind.LONG) out.append(indent).append("return (long) statement.executeUpdate();\n");
+        else throw new ProcessorException(method, "Update statements must return void, int or long!");
+    }
+
+    private void writeSelect(StringBuilder out, ExecutableElement method, TypeMirror returnType, String indent) throws ProcessorException {
+        if (returnType.getKind() == TypeKind.VOID) {
+            out.append(indent).append("statement.execute();\n");
+            return;
+        }
+        boolean isList = returnType.getKind() == TypeKind.DECLARED
+                && processingEnv.getTypeUtils().erasure(returnType).toString().equals("java.util.List");
+        TypeMirror rowType = isList ? ((DeclaredType) returnType).getTypeArguments().get(0) : returnType;
+        String row = this.getRowMapper(method, rowType);
+        out.append(indent).append("try (java.sql.ResultSet rs = statement.executeQuery()) {\n");
+        if (isList) {
+            out.append(String.format("%s    %s list = new java.util.ArrayList<>();%n", indent, returnType));
+            out.append(String.format("%s    while (rs.next()) list.add(%s);%n", indent, row));
+            out.append(String.format("%s    return list;%n", indent));
+        } else {
+            String empty = rowType.getKind().isPrimitive()
+                    ? "throw new java.sql.SQLException(\"No rows returned!\")" : "return null";
+            out.append(String.format("%s    if (!rs.next()) %s;%n", indent, empty));
+            out.append(String.format("%s    return %s;%n", indent, row));
+        }
+        out.append(indent).append("}\n");
+    }
+
+    private String getColumn(TypeMirror type, int index) {
+        String name = type.toString();
+        String[] info = TYPES.get(name);
+        if (info == null) return null;
+        if (info.length > 4)
+            return String.format("java.util.Optional.ofNullable(rs.%s(%s)).map(%s).orElse(null)", info[1], index, info[4]);
+        if (info[1] != null) return String.format("rs.%s(%s)", info[1], index);
+        return String.format("rs.getObject(%s, %s.class)", index, name);
+    }
+
+    private String getRowMapper(ExecutableElement method, TypeMirror rowType) throws ProcessorException {
+        String scalar = this.getColumn(rowType, 1);
+        if (scalar != null) return scalar;
+        if (rowType.getKind() != TypeKind.DECLARED)
+            throw new ProcessorException(method, String.format("Unsupported return type '%s'!", rowType));
+        TypeElement rowElement = (TypeElement) ((DeclaredType) rowType).asElement();
+        ExecutableElement constructor = null;
+        for (ExecutableElement candidate : ElementFilter.constructorsIn(rowElement.getEnclosedElements()))
+            if (candidate.getModifiers().contains(Modifier.PUBLIC))
+                if (constructor == null || candidate.getParameters().size() > constructor.getParameters().size())
+                    constructor = candidate;
+        if (constructor == null || constructor.getParameters().isEmpty())
+            throw new ProcessorException(method, String.format("'%s' needs a public constructor with one parameter per column!", rowType));
+        List<String> columns = new ArrayList<>();
+        List<? extends VariableElement> params = constructor.getParameters();
+        for (int i = 0; i < params.size(); i++) {
+            String column = this.getColumn(params.get(i).asType(), i + 1);
+            if (column == null) throw new ProcessorException(method, String.format(
+                    "Unsupported type '%s' in constructor of '%s'!", params.get(i).asType(), rowType));
+            columns.add(column);
+        }
+        return String.format("new %s(%s)", processingEnv.getTypeUtils().erasure(rowType), String.join(", ", columns));
+    }
+
+    private String escape(String sql) {
+        return sql.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\r", "").replace("\n", "\\n");
+    }
+
+    private static class ProcessorException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final transient Element element;
+
+        private ProcessorException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package pe.mrodas.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchLoaderTest {
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean failing;
+
+    /**
+     * Las filas son "v" + llave, excepto la llave 0 que no existe
+     */
+    private BatchLoader<Integer, String> loader() {
+        return new BatchLoader<Integer, String>(keys -> {
+            batches.add(keys);
+            if (failing) throw new SQLException("Connection lost!");
+            return keys.stream().filter(key -> key != 0).map(key -> "v" + key).collect(Collectors.toList());
+        }, row -> Integer.valueOf(row.substring(1))).setWindow(60_000_000).setExecutor(Runnable::run);
+    }
+
+    @Test
+    public void batching() throws Exception {
+        BatchLoader<Integer, String> loader = this.loader();
+        List<CompletableFuture<String>> futures = loader.loadMany(Arrays.asList(3, 1, 0, 2));
+        Assert.assertTrue(batches.isEmpty());
+        loader.dispatchPending();
+        Assert.assertEquals(Collections.singletonList(Arrays.asList(3, 1, 0, 2)), batches);
+        Assert.assertEquals("v3", futures.get(0).get());
+        Assert.assertEquals("v1", futures.get(1).get());
+        Assert.assertNull(futures.get(2).get());
+        Assert.assertEquals("v2", futures.get(3).get());
+    }
+
+    @Test
+    public void maxBatchSize() throws Exception {
+        BatchLoader<Integer, String> loader = this.loader().setMaxBatchSize(2);
+        List<CompletableFuture<String>> futures = loader.loadMany(Arrays.asList(1, 2, 3, 4, 5));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4)), batches);
+        loader.close();
+        Assert.assertEquals(Arrays.asList(5), batches.get(2));
+        Assert.assertEquals("v5", futures.get(4).get());
+    }
+
+    @Test
+    public void dedup() throws Exception {
+        BatchLoader<Integer, String> loader = this.loader();
+        CompletableFuture<String> first = loader.load(7);
+        Assert.assertSame(first, loader.load(7));
+        loader.dispatchPending();
+        Assert.assertEquals(Collections.singletonList(Collections.singletonList(7)), batches);
+        Assert.assertNotSame(first, loader.load(7));
+    }
+
+    @Test
+    public void cache() throws Exception {
+        BatchLoader<Integer, String> loader = this.loader().setCache(true);
+        CompletableFuture<String> first = loader.load(7);
+        loader.dispatchPending();
+        Assert.assertSame(first, loader.load(7));
+        loader.dispatchPending();
+        Assert.assertEquals(1, batches.size());
+        loader.clearCache();
+        CompletableFuture<String> reloaded = loader.load(7);
+        Assert.assertNotSame(first, reloaded);
+        loader.dispatchPending();
+        Assert.assertEquals("v7", reloaded.get());
+        Assert.assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void failureEviction() throws Exception {
+        BatchLoader<Integer, String> loader = this.loader().setCache(true);
+        failing = true;
+        CompletableFuture<String> failed = loader.load(7);
+        loader.dispatchPending();
+        try {
+            failed.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof SQLException);
+        }
+        failing = false;
+        CompletableFuture<String> retry = loader.load(7);
+        Assert.assertNotSame(failed, retry);
+        loader.dispatchPending();
+        Assert.assertEquals("v7", retry.get());
+        Assert.assertEquals(2, batches.size());
+    }
+}
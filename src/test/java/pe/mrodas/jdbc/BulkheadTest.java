@@ -0,0 +1,95 @@
+package pe.mrodas.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BulkheadTest {
+
+    private final Bulkhead bulkhead = new Bulkhead("test", 1, 1, 50);
+
+    private static Connection connection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> null);
+    }
+
+    private Connection open() throws Exception {
+        return bulkhead.wrap(BulkheadTest.connection(), bulkhead.acquire());
+    }
+
+    @Test
+    public void permitPerConnection() throws Exception {
+        Connection first = this.open();
+        Assert.assertEquals(1, bulkhead.getInFlight());
+        try {
+            this.open();
+            Assert.fail();
+        } catch (SQLTransientConnectionException e) {
+            Assert.assertEquals(1, bulkhead.getTimedOut());
+        }
+        first.close();
+        first.close();
+        Assert.assertEquals(0, bulkhead.getInFlight());
+        this.open().close();
+        Assert.assertEquals(0, bulkhead.getInFlight());
+    }
+
+    @Test
+    public void sharedInWorkload() throws Exception {
+        Connection outliving = Bulkhead.workload("test", () -> {
+            Connection outer = this.open();
+            Connection nested = Bulkhead.workload("test", this::open);
+            Assert.assertEquals(1, bulkhead.getInFlight());
+            outer.close();
+            return nested;
+        });
+        // el ámbito terminó, pero la conexión anidada mantiene el permiso
+        Assert.assertEquals(1, bulkhead.getInFlight());
+        try {
+            this.open();
+            Assert.fail();
+        } catch (SQLTransientConnectionException e) {
+            Assert.assertEquals(1, bulkhead.getTimedOut());
+        }
+        outliving.close();
+        Assert.assertEquals(0, bulkhead.getInFlight());
+    }
+
+    @Test
+    public void fairQueue() throws Exception {
+        Bulkhead slow = new Bulkhead("slow", 1, 1, 5000);
+        Connection held = slow.wrap(BulkheadTest.connection(), slow.acquire());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Thread[] waiter = new Thread[1];
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Connection> queued = executor.submit(() -> {
+                waiter[0] = Thread.currentThread();
+                started.countDown();
+                return slow.wrap(BulkheadTest.connection(), slow.acquire());
+            });
+            started.await();
+            while (waiter[0].getState() != Thread.State.TIMED_WAITING) Thread.sleep(1);
+            held.close();
+            // el permiso liberado es del hilo en cola, no de quien llega después
+            try {
+                slow.acquire();
+                Assert.fail();
+            } catch (SQLTransientConnectionException e) {
+                Assert.assertEquals(1, slow.getRejected() + slow.getTimedOut());
+            }
+            queued.get(5, TimeUnit.SECONDS).close();
+            Assert.assertEquals(0, slow.getInFlight());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
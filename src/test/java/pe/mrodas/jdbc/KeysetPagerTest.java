@@ -0,0 +1,151 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeysetPagerTest {
+
+    private final static String BASE = "SELECT t.id FROM items t WHERE t.active = 1 AND <keyset>";
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = handler.invoke(proxy, method, args);
+            return result == null && method.getReturnType() == boolean.class ? false : result;
+        }));
+    }
+
+    /**
+     * Tabla simulada con las llaves 1..25: cada sentencia devuelve las llaves después de la
+     * indicada, hasta el límite
+     */
+    @Before
+    public void configure() {
+        Connector.configure(KeysetPagerTest.proxy(DataSource.class, (ds, dsMethod, dsArgs) ->
+                KeysetPagerTest.proxy(Connection.class, (proxy, method, args) -> {
+                    if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+                    if (method.getName().equals("equals")) return proxy == args[0];
+                    if (!method.getName().equals("prepareStatement")) return null;
+                    String sql = (String) args[0];
+                    statements.add(sql);
+                    Map<Integer, Object> values = new TreeMap<>();
+                    return KeysetPagerTest.proxy(PreparedStatement.class, (ps, psMethod, psArgs) -> {
+                        String name = psMethod.getName();
+                        if (name.startsWith("set") && psArgs.length == 2 && psArgs[0] instanceof Integer)
+                            values.put((Integer) psArgs[0], psArgs[1]);
+                        if (name.equals("getResultSet")) {
+                            boolean resumed = sql.contains(">");
+                            int after = resumed ? ((Number) values.get(1)).intValue() : 0;
+                            int limit = ((Number) values.get(resumed ? 2 : 1)).intValue();
+                            return KeysetPagerTest.resultSet(after, Math.min(25, after + limit));
+                        }
+                        return null;
+                    });
+                })));
+    }
+
+    private static ResultSet resultSet(int after, int last) {
+        int[] row = {after};
+        return KeysetPagerTest.proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] <= last;
+                case "getObject":
+                case "getInt":
+                    return row[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private KeysetPager<AtomicInteger> pager() {
+        return new KeysetPager<AtomicInteger>(BASE, 10, "t.id")
+                .setMapper(AtomicInteger::new, (obj, rs) -> obj.set(rs.getInt("id")));
+    }
+
+    private static List<Integer> ids(List<AtomicInteger> page) {
+        return page == null ? null : page.stream().map(AtomicInteger::get).collect(Collectors.toList());
+    }
+
+    @Test
+    public void getSql() {
+        String[] keys = {"t.day", "t.id"};
+        Assert.assertEquals("((t.day > :keyset0) OR (t.day = :keyset0 AND t.id > :keyset1))", KeysetPager.getFilters(keys));
+        Assert.assertEquals("SELECT t.id FROM items t WHERE t.active = 1 AND (t.day IS NOT NULL AND t.id IS NOT NULL) ORDER BY t.day, t.id LIMIT :keysetLimit",
+                KeysetPager.getSql(BASE, keys, false));
+        Assert.assertEquals("SELECT t.id FROM items t WHERE t.active = 1 AND ((t.id > :keyset0)) ORDER BY t.id LIMIT :keysetLimit",
+                KeysetPager.getSql(BASE, new String[]{"t.id"}, true));
+    }
+
+    @Test
+    public void pages() throws Exception {
+        KeysetPager<AtomicInteger> pager = this.pager();
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids(pager.nextPage()));
+        Assert.assertArrayEquals(new Object[]{10}, pager.getLastKey());
+        Assert.assertEquals(11, (int) ids(pager.nextPage()).get(0));
+        Assert.assertEquals(Arrays.asList(21, 22, 23, 24, 25), ids(pager.nextPage()));
+        Assert.assertNull(pager.nextPage());
+        Assert.assertArrayEquals(new Object[]{25}, pager.getLastKey());
+        Assert.assertEquals(3, statements.size());
+        Assert.assertFalse(statements.get(0).contains(">"));
+        Assert.assertTrue(statements.get(2).contains(">"));
+    }
+
+    @Test
+    public void resume() throws Exception {
+        int rows = 0;
+        for (List<AtomicInteger> page : this.pager().resumeFrom(12)) {
+            Assert.assertEquals(13 + rows, page.get(0).get());
+            rows += page.size();
+        }
+        Assert.assertEquals(13, rows);
+        Assert.assertEquals(2, statements.size());
+    }
+
+    @Test
+    public void close() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            KeysetPager<AtomicInteger> pager = this.pager().setExecutor(executor);
+            Assert.assertEquals(10, pager.nextPage().size());
+            pager.close();
+            pager.close();
+            Assert.assertNull(pager.nextPage());
+            Assert.assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void missingMarker() throws Exception {
+        try {
+            new KeysetPager<AtomicInteger>("SELECT id FROM items", 10, "id")
+                    .setMapper(AtomicInteger::new, (obj, rs) -> obj.set(rs.getInt("id"))).nextPage();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("<keyset>"));
+        }
+        Assert.assertTrue(statements.isEmpty());
+    }
+}
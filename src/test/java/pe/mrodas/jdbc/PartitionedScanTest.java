@@ -0,0 +1,25 @@
+package pe.mrodas.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PartitionedScanTest {
+
+    @Test
+    public void split() throws Exception {
+        Assert.assertEquals(Arrays.asList(25L, 50L, 75L), PartitionedScan.split(0L, 100L, 4));
+        Assert.assertEquals(Arrays.asList(1L), PartitionedScan.split(0L, 2L, 8));
+        Assert.assertEquals(Collections.emptyList(), PartitionedScan.split(5, 5, 4));
+        BigInteger min = new BigInteger("18446744073709551616"), max = min.multiply(BigInteger.valueOf(3));
+        Assert.assertEquals(Arrays.asList(min.multiply(BigInteger.valueOf(2))), PartitionedScan.split(min, max, 2));
+        Assert.assertEquals(Arrays.asList(new BigDecimal("0.500000")), PartitionedScan.split(new BigDecimal("0"), new BigDecimal("1"), 2));
+        Assert.assertEquals(Arrays.asList(LocalDate.of(2020, 1, 16)),
+                PartitionedScan.split(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31), 2));
+    }
+}
@@ -0,0 +1,124 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+
+public class RowEncoderTest {
+
+    enum Status {NEW, PAID}
+
+    static class Base {
+        static int counter;
+        int id;
+    }
+
+    static class Order extends Base {
+        transient String cache;
+        Long customer;
+        String note;
+        BigDecimal total;
+        LocalDate day;
+        LocalDateTime created;
+        Status status;
+        char flag;
+        boolean active;
+
+        Order(int id, Long customer, String note, Status status) {
+            this.id = id;
+            this.customer = customer;
+            this.note = note;
+            this.status = status;
+            this.flag = 'x';
+            this.active = true;
+        }
+    }
+
+    private final List<String> calls = new ArrayList<>();
+    private String preparedSql;
+
+    private Connection getConnection() {
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && !name.equals("setQueryTimeout"))
+                        calls.add(name + Arrays.toString(args));
+                    if (name.equals("addBatch")) calls.add("addBatch");
+                    if (name.equals("executeBatch")) {
+                        calls.add("executeBatch");
+                        return new int[]{1};
+                    }
+                    return null;
+                });
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        preparedSql = (String) args[0];
+                        return statement;
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void build() {
+        List<String> columns = RowEncoder.of(Order.class).getColumns();
+        Assert.assertEquals(Arrays.asList("id", "customer", "note", "total", "day", "created", "status", "flag", "active"), columns);
+        Assert.assertSame(RowEncoder.of(Order.class), RowEncoder.of(Order.class));
+    }
+
+    @Test
+    public void insert() throws Exception {
+        RowEncoder<Order> encoder = RowEncoder.of(Order.class, "id", "customer", "status", "flag", "day");
+        Order order = new Order(7, null, "a", Status.PAID);
+        order.day = LocalDate.of(2020, 1, 31);
+        encoder.insert("orders", Arrays.asList(order, new Order(8, 3L, null, null)), this.getConnection(), Autoclose.NO);
+        Assert.assertEquals("INSERT INTO orders (id, customer, status, flag, day) VALUES (?, ?, ?, ?, ?)", preparedSql);
+        Assert.assertEquals(Arrays.asList(
+                "setInt[1, 7]", "setNull[2, " + Types.BIGINT + "]", "setString[3, PAID]", "setString[4, x]",
+                "setDate[5, 2020-01-31]", "addBatch",
+                "setInt[1, 8]", "setLong[2, 3]", "setNull[3, " + Types.VARCHAR + "]", "setString[4, x]",
+                "setNull[5, " + Types.DATE + "]", "addBatch", "executeBatch"), calls);
+    }
+
+    @Test
+    public void update() throws Exception {
+        Order order = new Order(7, 5L, "a", Status.NEW);
+        order.created = LocalDateTime.of(2020, 1, 31, 10, 0);
+        RowEncoder.of(Order.class, "id", "created", "active")
+                .update("orders", Arrays.asList(order), this.getConnection(), Autoclose.NO, "id");
+        Assert.assertEquals("UPDATE orders SET created = ?, active = ? WHERE id = ?", preparedSql);
+        Assert.assertEquals(Arrays.asList("setTimestamp[1, " + Timestamp.valueOf(order.created) + "]",
+                "setBoolean[2, true]", "setInt[3, 7]", "addBatch", "executeBatch"), calls);
+    }
+
+    @Test
+    public void unknownField() {
+        try {
+            RowEncoder.of(Order.class, "id", "cache");
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("'cache'"));
+        }
+        try {
+            RowEncoder.of(Order.class).update("orders", Arrays.asList(new Order(1, 1L, "a", null)), "missing");
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertTrue(e instanceof IOException);
+        }
+    }
+}
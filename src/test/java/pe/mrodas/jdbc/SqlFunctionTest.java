@@ -0,0 +1,131 @@
+package pe.mrodas.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import pe.mrodas.jdbc.helper.Dialect;
+
+public class SqlFunctionTest {
+
+    private final static Pattern UNION = Pattern.compile("UNION ALL");
+    private final List<String> statements = new ArrayList<>();
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Conexión simulada: cada fila de la sentencia devuelve "fn(argumentos)" y las filas
+     * se entregan en orden inverso
+     */
+    private Connection getConnection(String url) {
+        Connection[] connection = new Connection[1];
+        DatabaseMetaData metaData = SqlFunctionTest.proxy(DatabaseMetaData.class, (proxy, method, args) -> {
+            if (method.getName().equals("getURL")) return url;
+            if (method.getName().equals("getConnection")) return connection[0];
+            return null;
+        });
+        connection[0] = SqlFunctionTest.proxy(Connection.class, (proxy, method, args) -> {
+            if (method.getName().equals("getMetaData")) return metaData;
+            if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+            if (method.getName().equals("equals")) return proxy == args[0];
+            if (!method.getName().equals("prepareStatement")) return null;
+            String sql = (String) args[0];
+            statements.add(sql);
+            Map<Integer, Object> values = new TreeMap<>();
+            return SqlFunctionTest.proxy(PreparedStatement.class, (ps, psMethod, psArgs) -> {
+                String name = psMethod.getName();
+                if (name.equals("getConnection")) return connection[0];
+                if (name.equals("getParameterMetaData")) throw new SQLException("Not supported");
+                if (name.startsWith("set") && psArgs.length == 2 && psArgs[0] instanceof Integer)
+                    values.put((Integer) psArgs[0], name.equals("setNull") ? null : psArgs[1]);
+                if (name.equals("executeQuery")) return SqlFunctionTest.resultSet(sql, new ArrayList<>(values.values()));
+                return null;
+            });
+        });
+        return connection[0];
+    }
+
+    private static ResultSet resultSet(String sql, List<Object> values) {
+        Matcher matcher = UNION.matcher(sql);
+        int rows = 1;
+        while (matcher.find()) rows++;
+        int perRow = values.size() / rows;
+        int[] row = {rows};
+        return SqlFunctionTest.proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return --row[0] >= 0;
+                case "getInt":
+                    return row[0];
+                case "getString":
+                    return "fn" + values.subList(row[0] * perRow, (row[0] + 1) * perRow);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Test
+    public void getChunkSize() {
+        Assert.assertEquals(SqlFunction.MAX_ROWS, SqlFunction.getChunkSize(Dialect.MYSQL, 1));
+        Assert.assertEquals(400, SqlFunction.getChunkSize(Dialect.H2, 5));
+        Assert.assertEquals(1, SqlFunction.getChunkSize(Dialect.POSTGRESQL, 5000));
+        Assert.assertEquals(1, SqlFunction.getChunkSize(Dialect.OTHER, 1));
+        Assert.assertEquals(400, SqlFunction.getChunkSize(Dialect.SQLSERVER, 5));
+    }
+
+    @Test
+    public void getBatchSql() {
+        Assert.assertEquals("SELECT 0 idx, fn(?, ?) val", SqlFunction.getBatchSql(Dialect.MYSQL, "fn", 1, 2));
+        Assert.assertEquals("SELECT 0 idx, fn() val UNION ALL SELECT 1, fn() val UNION ALL SELECT 2, fn() val",
+                SqlFunction.getBatchSql(Dialect.SQLSERVER, "fn", 3, 0));
+        Assert.assertEquals("SELECT 0 idx, fn(?) val FROM DUAL UNION ALL SELECT 1, fn(?) val FROM DUAL",
+                SqlFunction.getBatchSql(Dialect.ORACLE, "fn", 2, 1));
+    }
+
+    @Test
+    public void executeBatch() throws Exception {
+        List<Object[]> arguments = new ArrayList<>();
+        for (int i = 0; i < 1203; i++) arguments.add(new Object[]{i, i % 7 == 0 ? null : "x" + i});
+        List<String> results = new SqlFunction<String>("fn")
+                .executeBatch(this.getConnection("jdbc:h2:mem:test"), arguments, ResultSet::getString);
+        Assert.assertEquals(1203, results.size());
+        for (int i = 0; i < results.size(); i++)
+            Assert.assertEquals("fn" + Arrays.asList(i, i % 7 == 0 ? null : "x" + i), results.get(i));
+        Assert.assertEquals(Arrays.asList(SqlFunction.getBatchSql(Dialect.H2, "fn", 500, 2), SqlFunction.getBatchSql(Dialect.H2, "fn", 203, 2)), statements);
+    }
+
+    @Test
+    public void executeBatchOracle() throws Exception {
+        List<Object[]> arguments = Arrays.asList(new Object[]{1}, new Object[]{2});
+        List<String> results = new SqlFunction<String>("fn")
+                .executeBatch(this.getConnection("jdbc:oracle:thin:@db:1521/x"), arguments, ResultSet::getString);
+        Assert.assertEquals(Arrays.asList("fn[1]", "fn[2]"), results);
+        Assert.assertEquals(Collections.singletonList(SqlFunction.getBatchSql(Dialect.ORACLE, "fn", 2, 1)), statements);
+    }
+
+    @Test
+    public void executeBatchOther() throws Exception {
+        List<Object[]> arguments = Arrays.asList(new Object[]{1}, new Object[]{2}, new Object[]{3});
+        List<String> results = new SqlFunction<String>("fn")
+                .executeBatch(this.getConnection("jdbc:db2://db:50000/x"), arguments, ResultSet::getString);
+        Assert.assertEquals(Arrays.asList("fn[1]", "fn[2]", "fn[3]"), results);
+        Assert.assertEquals(Collections.singletonList("SELECT 0 idx, fn(?) val"), statements);
+    }
+}
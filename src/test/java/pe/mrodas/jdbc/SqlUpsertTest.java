@@ -0,0 +1,65 @@
+package pe.mrodas.jdbc;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import pe.mrodas.jdbc.helper.Autoclose;
+import pe.mrodas.jdbc.helper.Dialect;
+
+public class SqlUpsertTest {
+
+    private final List<String> fields = Arrays.asList("id", "name", "total");
+
+    private SqlUpsert upsert() {
+        return new SqlUpsert("orders").addKey("id", 1).addField("name", "a").addField("total", 5);
+    }
+
+    @Test
+    public void getPreparedQuery() {
+        SqlUpsert upsert = this.upsert();
+        Assert.assertEquals("INSERT INTO orders (id, name, total) VALUES (?, ?, ?), (?, ?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name), total = VALUES(total)",
+                upsert.getPreparedQuery(Dialect.MYSQL, fields, 2));
+        Assert.assertEquals("INSERT INTO orders (id, name, total) VALUES (?, ?, ?) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, total = EXCLUDED.total",
+                upsert.getPreparedQuery(Dialect.POSTGRESQL, fields, 1));
+        Assert.assertEquals("MERGE INTO orders (id, name, total) KEY (id) VALUES (?, ?, ?)",
+                upsert.getPreparedQuery(Dialect.H2, fields, 1));
+        String merge = "MERGE INTO orders target USING (VALUES (?, ?, ?), (?, ?, ?)) upsert (id, name, total) ON (target.id = upsert.id)"
+                + " WHEN MATCHED THEN UPDATE SET name = upsert.name, total = upsert.total"
+                + " WHEN NOT MATCHED THEN INSERT (id, name, total) VALUES (upsert.id, upsert.name, upsert.total);";
+        Assert.assertEquals(merge, upsert.getPreparedQuery(Dialect.SQLSERVER, fields, 2));
+        Assert.assertEquals(merge, upsert.getPreparedQuery(Dialect.OTHER, fields, 2));
+    }
+
+    @Test
+    public void getChunkSize() {
+        Assert.assertEquals(SqlUpsert.MAX_ROWS, SqlUpsert.getChunkSize(1));
+        Assert.assertEquals(666, SqlUpsert.getChunkSize(3));
+        Assert.assertEquals(1, SqlUpsert.getChunkSize(5000));
+        Assert.assertTrue(SqlUpsert.getChunkSize(3) * 3 <= 2100);
+    }
+
+    @Test
+    public void oracle() throws Exception {
+        DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(DatabaseMetaData.class.getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, (proxy, method, args) -> method.getName().equals("getURL") ? "jdbc:oracle:thin:@db:1521/app" : null);
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getMetaData")) return metaData;
+                    if (method.getName().equals("prepareStatement")) Assert.fail();
+                    return null;
+                });
+        try {
+            this.upsert().execute(connection, Autoclose.NO);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("Oracle"));
+        }
+    }
+}
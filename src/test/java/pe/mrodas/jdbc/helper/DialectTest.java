@@ -0,0 +1,22 @@
+package pe.mrodas.jdbc.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DialectTest {
+
+    @Test
+    public void of() {
+        Assert.assertEquals(Dialect.MYSQL, Dialect.of("com.mysql.jdbc.Driver"));
+        Assert.assertEquals(Dialect.MYSQL, Dialect.of("jdbc:mariadb://db/app"));
+        Assert.assertEquals(Dialect.POSTGRESQL, Dialect.of("org.postgresql.Driver"));
+        Assert.assertEquals(Dialect.H2, Dialect.of("jdbc:h2:mem:test"));
+        Assert.assertEquals(Dialect.POSTGRESQL, Dialect.of("jdbc:postgresql://h2-host/mysql_copy"));
+        Assert.assertEquals(Dialect.SQLSERVER, Dialect.of("jdbc:sqlserver://mysql-h2;databaseName=postgresql"));
+        Assert.assertEquals(Dialect.SQLSERVER, Dialect.of("com.microsoft.sqlserver.jdbc.SQLServerDriver"));
+        Assert.assertEquals(Dialect.ORACLE, Dialect.of("oracle.jdbc.OracleDriver"));
+        Assert.assertEquals(Dialect.ORACLE, Dialect.of("jdbc:oracle:thin:@db:1521/app"));
+        Assert.assertEquals(Dialect.OTHER, Dialect.of("jdbc:db2://db:50000/app"));
+        Assert.assertEquals(Dialect.OTHER, Dialect.of((String) null));
+    }
+}
@@ -0,0 +1,33 @@
+package pe.mrodas.jdbc.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DmlSqlTest {
+
+    @Test
+    public void insert() {
+        List<String> fields = new ArrayList<>(Arrays.asList("id", "name"));
+        String sql = DmlSql.insert("user", fields);
+        Assert.assertEquals("INSERT INTO user (id, name) VALUES (?, ?)", sql);
+        fields.add("email");
+        Assert.assertSame(sql, DmlSql.insert("user", Arrays.asList("id", "name")));
+        Assert.assertEquals("INSERT INTO user (id, name, email) VALUES (?, ?, ?)", DmlSql.insert("user", fields));
+    }
+
+    @Test
+    public void updateAndDelete() {
+        Filters filters = new Filters();
+        filters.add("id", Arrays.asList(1, null, 2));
+        filters.add("active", true);
+        String update = DmlSql.update("user", Arrays.asList("name", "email"), Arrays.asList(false, true), filters);
+        Assert.assertEquals("UPDATE user SET name = ?, email = NULL WHERE id IN (?,?) AND active = ?", update);
+        Assert.assertEquals("DELETE FROM user WHERE id IN (?,?) AND active = ?", DmlSql.delete("user", filters));
+        Assert.assertEquals(Arrays.asList(1, 2, true), filters.getValues());
+        Assert.assertEquals("active", filters.getNameAt(2));
+    }
+}
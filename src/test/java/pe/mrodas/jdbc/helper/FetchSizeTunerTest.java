@@ -0,0 +1,73 @@
+package pe.mrodas.jdbc.helper;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FetchSizeTunerTest {
+
+    private final static String SQL = "SELECT id, total FROM orders";
+
+    /**
+     * Resultado simulado con dos columnas INTEGER: 2 * (4 + 8) = 24 bytes por fila
+     */
+    private static ResultSet resultSet() {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getColumnCount")) return 2;
+                    if (method.getName().equals("getColumnType")) return Types.INTEGER;
+                    return null;
+                });
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> method.getName().equals("getMetaData") ? metaData : null);
+    }
+
+    @After
+    public void reset() {
+        FetchSizeTuner.clear();
+        FetchSizeTuner.setBufferBudget(4 * 1024 * 1024);
+        FetchSizeTuner.setEnabled(true);
+    }
+
+    @Test
+    public void budget() throws Exception {
+        Assert.assertEquals(FetchSizeTuner.MAX_FETCH_SIZE, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.setBufferBudget(1000);
+        Assert.assertEquals(FetchSizeTuner.MIN_FETCH_SIZE, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.setBufferBudget(2400);
+        FetchSizeTuner.record(SQL, FetchSizeTunerTest.resultSet(), 5000);
+        Assert.assertEquals(100, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.setBufferBudget(240);
+        Assert.assertEquals(FetchSizeTuner.MIN_FETCH_SIZE, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.setEnabled(false);
+        Assert.assertEquals(0, FetchSizeTuner.getFetchSize(SQL));
+    }
+
+    @Test
+    public void movingAverage() throws Exception {
+        FetchSizeTuner.record(SQL, FetchSizeTunerTest.resultSet(), 100);
+        Assert.assertEquals(101, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.record(SQL, null, 200);
+        Assert.assertEquals(121, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.record(SQL, null, 0);
+        Assert.assertEquals(97, FetchSizeTuner.getFetchSize(SQL));
+        FetchSizeTuner.clear();
+        FetchSizeTuner.record(SQL, null, 1);
+        Assert.assertEquals(FetchSizeTuner.MIN_FETCH_SIZE, FetchSizeTuner.getFetchSize(SQL));
+    }
+
+    @Test
+    public void appliesFetchSize() {
+        Assert.assertFalse(FetchSizeTuner.appliesFetchSize("jdbc:mysql://db/app"));
+        Assert.assertFalse(FetchSizeTuner.appliesFetchSize("jdbc:mysql://db/app?useCursorFetch=false"));
+        Assert.assertTrue(FetchSizeTuner.appliesFetchSize("jdbc:mysql://db/app?useSSL=false&useCursorFetch=true"));
+        Assert.assertTrue(FetchSizeTuner.appliesFetchSize("jdbc:mariadb://db/app"));
+        Assert.assertTrue(FetchSizeTuner.appliesFetchSize("jdbc:postgresql://db/app"));
+        Assert.assertTrue(FetchSizeTuner.appliesFetchSize(null));
+    }
+}
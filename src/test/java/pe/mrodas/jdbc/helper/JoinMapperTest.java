@@ -0,0 +1,95 @@
+package pe.mrodas.jdbc.helper;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JoinMapperTest {
+
+    static class Node {
+        final List<Node> lines = new ArrayList<>(), taxes = new ArrayList<>(), notes = new ArrayList<>();
+        String name;
+
+        @Override
+        public String toString() {
+            String text = name;
+            if (!lines.isEmpty()) text += " lines" + lines;
+            if (!taxes.isEmpty()) text += " taxes" + taxes;
+            if (!notes.isEmpty()) text += " notes" + notes;
+            return text;
+        }
+    }
+
+    /**
+     * ResultSet de sólo avance sobre filas en memoria
+     */
+    private static ResultSet resultSet(String[] columns, Object[][] rows) {
+        List<String> labels = Arrays.asList(columns);
+        int[] row = {-1};
+        boolean[] wasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] < rows.length;
+                case "findColumn":
+                    int index = labels.indexOf((String) args[0]);
+                    if (index < 0) throw new SQLException("Column not found: " + args[0]);
+                    return index + 1;
+                case "wasNull":
+                    return wasNull[0];
+                case "getLong":
+                case "getString":
+                    int column = args[0] instanceof Integer ? (Integer) args[0] : labels.indexOf((String) args[0]) + 1;
+                    Object value = rows[row[0]][column - 1];
+                    wasNull[0] = value == null;
+                    if (method.getName().equals("getString")) return value == null ? null : value.toString();
+                    return value == null ? 0L : ((Number) value).longValue();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static JoinMapper<Node> level(String key, String name) {
+        return JoinMapper.of(key, Node::new, (node, rs) -> node.name = rs.getString(name));
+    }
+
+    @Test
+    public void map() throws Exception {
+        JoinMapper<Node> mapper = level("order_id", "order_name")
+                .join(level("line_id", "line_name")
+                        .join(level("tax_id", "tax_name"), (line, tax) -> line.taxes.add(tax)), (order, line) -> order.lines.add(line))
+                .join(level("note_id", "note_name"), (order, note) -> order.notes.add(note));
+        String[] columns = {"order_id", "order_name", "line_id", "line_name", "tax_id", "tax_name", "note_id", "note_name"};
+        Object[][] rows = {
+                {2, "o2", 20, "l20", 1, "t1", 5, "n5"},
+                {2, "o2", 20, "l20", 2, "t2", 5, "n5"},
+                {2, "o2", 21, "l21", null, null, 5, "n5"},
+                {1, "o1", null, null, null, null, null, null},
+                {3, "o3", 20, "l20-o3", 1, "t1-o3", null, null},
+                {2, "o2", 20, "l20", 3, "t3", 6, "n6"},
+                {null, null, 99, "orphan", 9, "t9", 9, "n9"},
+        };
+        List<Node> orders = mapper.map(JoinMapperTest.resultSet(columns, rows));
+        Assert.assertEquals("[o2 lines[l20 taxes[t1, t2, t3], l21] notes[n5, n6], o1, o3 lines[l20-o3 taxes[t1-o3]]]", orders.toString());
+        Assert.assertEquals("[]", mapper.map(JoinMapperTest.resultSet(columns, new Object[0][])).toString());
+    }
+
+    @Test
+    public void longMap() {
+        JoinMapper.LongMap<String> map = new JoinMapper.LongMap<>();
+        for (long key = -500; key < 500; key++) map.put(key * 1024, "v" + key);
+        map.put(0, "zero");
+        Assert.assertEquals(1000, map.size());
+        Assert.assertEquals("zero", map.get(0));
+        Assert.assertEquals("v-500", map.get(-500 * 1024));
+        Assert.assertEquals("v499", map.get(499 * 1024));
+        Assert.assertNull(map.get(1));
+    }
+}
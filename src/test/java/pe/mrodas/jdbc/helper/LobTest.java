@@ -0,0 +1,112 @@
+package pe.mrodas.jdbc.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LobTest {
+
+    /**
+     * Fila simulada con una sola columna "data" del tipo y valor indicados
+     */
+    private static ResultSet row(int type, Object value) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> method.getName().equals("getColumnType") ? type : null);
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findColumn":
+                            if (!"data".equals(args[0])) throw new SQLException("Column not found");
+                            return 1;
+                        case "getMetaData":
+                            return metaData;
+                        case "getObject":
+                            throw new AssertionError("lazy must read by column type");
+                        default:
+                            return value;
+                    }
+                });
+    }
+
+    @Test
+    public void lazyBinary() throws Exception {
+        byte[] content = {1, 2, 3};
+        Lob.Ref mysqlBlob = Lob.lazy(LobTest.row(Types.LONGVARBINARY, content), "data");
+        Assert.assertTrue(mysqlBlob.isBinary());
+        Assert.assertEquals(3, mysqlBlob.length());
+        Lob.Ref blob = Lob.lazy(LobTest.row(Types.BLOB, new SerialBlob(content)), "data");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(3, blob.transferTo(Channels.newChannel(out)));
+        Assert.assertArrayEquals(content, out.toByteArray());
+        Assert.assertNull(Lob.lazy(LobTest.row(Types.VARBINARY, null), "data"));
+    }
+
+    @Test
+    public void lazyCharacter() throws Exception {
+        Lob.Ref text = Lob.lazy(LobTest.row(Types.LONGVARCHAR, "año"), "data");
+        Assert.assertFalse(text.isBinary());
+        StringWriter writer = new StringWriter();
+        Assert.assertEquals(3, text.transferTo(writer));
+        Assert.assertEquals("año", writer.toString());
+        Path file = Files.createTempFile("lob", ".txt");
+        try {
+            text.transferTo(file, StandardCharsets.ISO_8859_1);
+            Assert.assertEquals(3, Files.size(file));
+            text.transferTo(file);
+            Assert.assertEquals("año", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void lazyInvalid() throws Exception {
+        try {
+            Lob.lazy(LobTest.row(Types.INTEGER, 5), "data");
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertTrue(e.getMessage().contains("'data'"));
+        }
+    }
+
+    @Test
+    public void registerIN() throws Exception {
+        List<String> calls = new ArrayList<>();
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    calls.add(method.getName() + ":" + args[0] + ":" + args[2]);
+                    return null;
+                });
+        try (Lob binary = Lob.binary(new ByteArrayInputStream(new byte[10]), 10)) {
+            binary.registerIN(statement, 1);
+        }
+        Path file = Files.createTempFile("lob", ".txt");
+        try {
+            Files.write(file, "año".getBytes(StandardCharsets.UTF_8));
+            try (Lob character = Lob.character(file, StandardCharsets.UTF_8)) {
+                Assert.assertEquals(3, character.getLength());
+                character.registerIN(statement, 2);
+            }
+        } finally {
+            Files.delete(file);
+        }
+        Assert.assertEquals("[setBinaryStream:1:10, setCharacterStream:2:3]", calls.toString());
+    }
+}
@@ -0,0 +1,86 @@
+package pe.mrodas.jdbc.helper;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParsedSqlTest {
+
+    @Test
+    public void parse() {
+        ParsedSql parsed = ParsedSql.parse("SELECT ':skip', x::text FROM t -- :comment\nWHERE a = :a AND b IN (:b0,:b1) OR a = :a");
+        Assert.assertEquals("SELECT ':skip', x::text FROM t -- :comment\nWHERE a = ? AND b IN (?,?) OR a = ?", parsed.getSql());
+        Assert.assertEquals(Arrays.asList("a", "b0", "b1", "a"), parsed.getNames());
+    }
+
+    @Test
+    public void parseEscapes() throws Exception {
+        String query = "SELECT * FROM t WHERE name = 'O\\'Brien' AND id = :id AND path = 'C:\\\\' AND x = :x";
+        ParsedSql mysql = ParsedSql.parse(query, Dialect.MYSQL);
+        Assert.assertEquals(Arrays.asList("id", "x"), mysql.getNames());
+        Assert.assertEquals("SELECT * FROM t WHERE name = 'O\\'Brien' AND id = ? AND path = 'C:\\\\' AND x = ?", mysql.getSql());
+        ParsedSql standard = ParsedSql.parse("SELECT 'C:\\', :id");
+        Assert.assertEquals(Collections.singletonList("id"), standard.getNames());
+        Assert.assertEquals(Collections.singletonList("id"), ParsedSql.parse("SELECT E'it\\'s :no', :id", Dialect.POSTGRESQL).getNames());
+
+        ParsedSql parsed = ParsedSql.parse(query);
+        Assert.assertEquals(mysql.getSql(), parsed.withDialect(ParsedSqlTest.connection("jdbc:mysql://db/app")).getSql());
+        Assert.assertSame(parsed, parsed.withDialect(ParsedSqlTest.connection("jdbc:h2:mem:app")));
+        ParsedSql plain = ParsedSql.parse("SELECT :id");
+        Assert.assertSame(plain, plain.withDialect(null));
+    }
+
+    private static Connection connection(String url) {
+        DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(DatabaseMetaData.class.getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, (proxy, method, args) -> method.getName().equals("getURL") ? url : null);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> method.getName().equals("getMetaData") ? metaData : null);
+    }
+
+    @Test
+    public void getNamedQueries() throws Exception {
+        Map<String, String> queries = new SqlString(
+                "-- name: findUser",
+                "SELECT * FROM user",
+                "WHERE id = :id;",
+                "--name:deleteUser",
+                "DELETE FROM user WHERE id = :id"
+        ).getNamedQueries();
+        Assert.assertEquals(Arrays.asList("findUser", "deleteUser"), Arrays.asList(queries.keySet().toArray()));
+        Assert.assertEquals("SELECT * FROM user\nWHERE id = :id", queries.get("findUser"));
+    }
+
+    @Test
+    public void getStatements() {
+        List<String> statements = new SqlString(
+                "-- header; only a comment",
+                "INSERT INTO t VALUES ('a;b', \"c;\", 'it''s;', 'it\\'s; x', 'C:\\\\'); /* x; */",
+                "CREATE FUNCTION f() RETURNS int AS $body$ SELECT 1; $body$ LANGUAGE sql;",
+                "DELIMITER //",
+                "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END//",
+                "DELIMITER ;",
+                "DELETE FROM t;;"
+        ).getStatements(Dialect.MYSQL);
+        Assert.assertEquals(Arrays.asList(
+                "-- header; only a comment\nINSERT INTO t VALUES ('a;b', \"c;\", 'it''s;', 'it\\'s; x', 'C:\\\\')",
+                "/* x; */\nCREATE FUNCTION f() RETURNS int AS $body$ SELECT 1; $body$ LANGUAGE sql",
+                "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END",
+                "DELETE FROM t"), statements);
+    }
+
+    @Test
+    public void getStatementsStandard() {
+        SqlString script = new SqlString("INSERT INTO t VALUES ('C:\\', 'it''s'); SELECT E'it\\'s; x';", "SELECT 'a\\';");
+        Assert.assertEquals(Arrays.asList("INSERT INTO t VALUES ('C:\\', 'it''s')", "SELECT E'it\\'s; x'", "SELECT 'a\\'"),
+                script.getStatements(Dialect.POSTGRESQL));
+        Assert.assertEquals(Arrays.asList("INSERT INTO t VALUES ('C:\\', 'it''s')", "SELECT 'a\\'"),
+                new SqlString("INSERT INTO t VALUES ('C:\\', 'it''s');", "SELECT 'a\\';").getStatements());
+    }
+}
@@ -0,0 +1,123 @@
+package pe.mrodas.jdbc.helper;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RowPublisherTest {
+
+    private final AtomicBoolean connectionClosed = new AtomicBoolean();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final List<Object> signals = new ArrayList<>();
+    private Reactive.Subscription subscription;
+
+    /**
+     * Sentencia simulada con <code>rows</code> filas (1, 2, ...)
+     */
+    private SqlStatement<Integer> statement(int rows) {
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) connectionClosed.set(true);
+                    return null;
+                });
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("next")) return fetched.incrementAndGet() <= rows;
+                    return null;
+                });
+        PreparedStatement prepared = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> method.getName().equals("getResultSet") ? rs : null);
+        return new SqlStatement<Integer>(connection, Autoclose.YES) {
+            @Override
+            protected SQLException buildCallableException(SQLException e) {
+                return e;
+            }
+
+            @Override
+            protected PreparedStatement executeStatement() {
+                return prepared;
+            }
+        };
+    }
+
+    private void subscribe(SqlStatement<Integer> statement, long initial, int failAt) {
+        ThrowingBiConsumer<Integer, ResultSet> mapper = (obj, rs) -> {
+        };
+        statement.publish(Runnable::run, fetched::get, mapper)
+                .subscribe(new Reactive.Subscriber<Integer>() {
+                    @Override
+                    public void onSubscribe(Reactive.Subscription s) {
+                        subscription = s;
+                        if (initial > 0) s.request(initial);
+                    }
+
+                    @Override
+                    public void onNext(Integer item) {
+                        if (item == failAt) throw new IllegalStateException("Subscriber failed!");
+                        signals.add(item);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        signals.add("error");
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        signals.add("complete");
+                    }
+                });
+    }
+
+    @Test
+    public void backpressure() {
+        this.subscribe(this.statement(8), 0, -1);
+        Assert.assertEquals(0, fetched.get());
+        subscription.request(2);
+        Assert.assertEquals(Arrays.asList(1, 2), signals);
+        Assert.assertEquals(2, fetched.get());
+        subscription.request(3);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), signals);
+        Assert.assertEquals(5, fetched.get());
+        Assert.assertFalse(connectionClosed.get());
+        subscription.request(10);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, "complete"), signals);
+        Assert.assertTrue(connectionClosed.get());
+    }
+
+    @Test
+    public void cancel() {
+        this.subscribe(this.statement(8), 2, -1);
+        subscription.cancel();
+        Assert.assertTrue(connectionClosed.get());
+        subscription.request(5);
+        Assert.assertEquals(Arrays.asList(1, 2), signals);
+        Assert.assertEquals(2, fetched.get());
+    }
+
+    @Test
+    public void invalidRequest() {
+        this.subscribe(this.statement(8), 1, -1);
+        subscription.request(0);
+        Assert.assertEquals(Arrays.asList(1, "error"), signals);
+        Assert.assertTrue(connectionClosed.get());
+    }
+
+    @Test
+    public void failingSubscriber() {
+        this.subscribe(this.statement(8), Long.MAX_VALUE, 3);
+        Assert.assertEquals(Arrays.asList(1, 2), signals);
+        Assert.assertEquals(3, fetched.get());
+        Assert.assertTrue(connectionClosed.get());
+    }
+}
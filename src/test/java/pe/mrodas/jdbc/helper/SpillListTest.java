@@ -0,0 +1,18 @@
+package pe.mrodas.jdbc.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpillListTest {
+
+    @Test
+    public void getSpilledRows() throws Exception {
+        try (SpillList<String> list = new SpillList<>(3, 4)) {
+            for (int i = 0; i < 15; i++) list.append("row" + i);
+            Assert.assertTrue(list.isSpilled());
+            Assert.assertEquals(15, list.size());
+            for (int i = 14; i >= 0; i--)
+                Assert.assertEquals("row" + i, list.get(i));
+        }
+    }
+}
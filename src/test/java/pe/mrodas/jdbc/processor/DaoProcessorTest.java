@@ -0,0 +1,174 @@
+package pe.mrodas.jdbc.processor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DaoProcessorTest {
+
+    private final static String USER = "package p;\npublic class User {\n"
+            + "    public User(int id, String name) {}\n}\n";
+
+    @Test
+    public void sql() throws Exception {
+        Result result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import java.io.IOException;\nimport java.sql.SQLException;\nimport java.util.List;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao {\n"
+                + "    @Sql(\"SELECT id, name FROM user WHERE id = :id\")\n"
+                + "    User find(int id) throws IOException, SQLException;\n"
+                + "    @Sql(\"SELECT name FROM user WHERE name LIKE :name\")\n"
+                + "    List<String> names(String name) throws IOException, SQLException;\n"
+                + "    @Sql(\"UPDATE user SET name = :name WHERE id = :id\")\n"
+                + "    int rename(int id, String name) throws IOException, SQLException;\n"
+                + "}\n", USER);
+        Assert.assertEquals(Collections.emptyList(), result.errors);
+        Assert.assertTrue(result.source.contains("SQL_0 = \"SELECT id, name FROM user WHERE id = ?\""));
+        Assert.assertTrue(result.source.contains("return new p.User(rs.getInt(1), rs.getString(2));"));
+        Assert.assertTrue(result.source.contains("while (rs.next()) list.add(rs.getString(1));"));
+        Assert.assertTrue(result.source.contains("if (name == null) statement.setNull(1, java.sql.Types.VARCHAR);"));
+        Assert.assertTrue(result.source.contains("return statement.executeUpdate();"));
+    }
+
+    @Test
+    public void localTypes() throws Exception {
+        Result result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import java.io.IOException;\nimport java.sql.SQLException;\nimport java.time.*;\nimport java.util.List;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao {\n"
+                + "    @Sql(\"SELECT created FROM user WHERE birth = :birth AND alarm = :alarm\")\n"
+                + "    List<LocalDateTime> created(LocalDate birth, LocalTime alarm) throws IOException, SQLException;\n"
+                + "    @Sql(\"UPDATE user SET created = :created\")\n"
+                + "    int touch(LocalDateTime created) throws IOException, SQLException;\n"
+                + "}\n", null);
+        Assert.assertEquals(Collections.emptyList(), result.errors);
+        Assert.assertTrue(result.source.contains("else statement.setDate(1, java.sql.Date.valueOf(birth));"));
+        Assert.assertTrue(result.source.contains("else statement.setTime(2, java.sql.Time.valueOf(alarm));"));
+        Assert.assertTrue(result.source.contains("if (created == null) statement.setNull(1, java.sql.Types.TIMESTAMP);"));
+        Assert.assertTrue(result.source.contains("list.add(java.util.Optional.ofNullable(rs.getTimestamp(1)).map(java.sql.Timestamp::toLocalDateTime).orElse(null));"));
+        Assert.assertFalse(result.source.contains("Object"));
+    }
+
+    @Test
+    public void namedResource() throws Exception {
+        Result result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import java.io.IOException;\nimport java.sql.SQLException;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao {\n"
+                + "    @Sql(name = \"countUsers\", resource = \"sql/users.sql\")\n"
+                + "    long count(boolean active) throws IOException, SQLException;\n"
+                + "}\n", null, "-- name: countUsers\nSELECT COUNT(*) FROM user WHERE active = :active;\n");
+        Assert.assertEquals(Collections.emptyList(), result.errors);
+        Assert.assertTrue(result.source.contains("SQL_0 = \"SELECT COUNT(*) FROM user WHERE active = ?\""));
+        Assert.assertTrue(result.source.contains("statement.setBoolean(1, active);"));
+    }
+
+    @Test
+    public void call() throws Exception {
+        Result result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import java.io.IOException;\nimport java.sql.Connection;\nimport java.sql.SQLException;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao {\n"
+                + "    @Call(\"sp_user_save\")\n"
+                + "    void save(Connection conn, int id, String name) throws IOException, SQLException;\n"
+                + "}\n", null);
+        Assert.assertEquals(Collections.emptyList(), result.errors);
+        Assert.assertTrue(result.source.contains("SQL_0 = \"{CALL sp_user_save(?, ?)}\""));
+        Assert.assertTrue(result.source.contains("conn.prepareCall(SQL_0)"));
+        Assert.assertFalse(result.source.contains("Connector.getConnection()"));
+    }
+
+    @Test
+    public void inheritance() throws Exception {
+        Result result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import java.io.IOException;\nimport java.sql.SQLException;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao extends Base<User> {\n"
+                + "    @Sql(\"DELETE FROM user WHERE id = :id\")\n"
+                + "    int delete(int id) throws IOException, SQLException;\n"
+                + "}\n"
+                + "interface Base<T> {\n"
+                + "    @Sql(\"SELECT id, name FROM user WHERE id = :id\")\n"
+                + "    T find(int id) throws IOException, SQLException;\n"
+                + "    @Sql(\"DELETE FROM user\")\n"
+                + "    int delete(int id) throws IOException, SQLException;\n"
+                + "}\n", USER);
+        Assert.assertEquals(Collections.emptyList(), result.errors);
+        Assert.assertTrue(result.source.contains("public p.User find(int id)"));
+        Assert.assertTrue(result.source.contains("SQL_0 = \"DELETE FROM user WHERE id = ?\""));
+        Assert.assertFalse(result.source.contains("\"DELETE FROM user\""));
+    }
+
+    @Test
+    public void errors() throws Exception {
+        Result result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao {\n"
+                + "    @Sql(\"SELECT 1\")\n"
+                + "    int one();\n"
+                + "}\n", null);
+        Assert.assertEquals(Collections.singletonList("Method must declare 'throws IOException, SQLException'!"), result.errors);
+        result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic class UserDao {\n}\n", null);
+        Assert.assertEquals(Collections.singletonList("@Dao can only be applied to interfaces!"), result.errors);
+        result = DaoProcessorTest.compile("p.UserDao", "package p;\n"
+                + "import java.io.IOException;\nimport java.sql.SQLException;\n"
+                + "import pe.mrodas.jdbc.annotation.*;\n"
+                + "@Dao\npublic interface UserDao {\n"
+                + "    int one() throws IOException, SQLException;\n"
+                + "}\n", null);
+        Assert.assertEquals(Collections.singletonList("Method must be annotated with @Sql or @Call!"), result.errors);
+    }
+
+    private static class Result {
+        private final List<String> errors = new ArrayList<>();
+        private String source = "";
+    }
+
+    private static Result compile(String name, String source, String user) throws IOException {
+        return DaoProcessorTest.compile(name, source, user, null);
+    }
+
+    private static Result compile(String name, String source, String user, String usersSql) throws IOException {
+        Path dir = Files.createTempDirectory("dao-processor");
+        Path src = Files.createDirectories(dir.resolve("src/p"));
+        Path out = Files.createDirectories(dir.resolve("out"));
+        List<Path> files = new ArrayList<>();
+        files.add(Files.write(src.resolve("UserDao.java"), source.getBytes(StandardCharsets.UTF_8)));
+        if (user != null) files.add(Files.write(src.resolve("User.java"), user.getBytes(StandardCharsets.UTF_8)));
+        if (usersSql != null) Files.write(Files.createDirectories(dir.resolve("src/sql")).resolve("users.sql"),
+                usersSql.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Result result = new Result();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-sourcepath", dir.resolve("src").toString(), "-d", out.toString(), "-s", out.toString(),
+                    "-processor", DaoProcessor.class.getName());
+            compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(files.stream().map(Path::toFile).collect(Collectors.toList()))).call();
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) result.errors.add(diagnostic.getMessage(null));
+        Path impl = out.resolve(name.replace('.', '/') + "Impl.java");
+        if (Files.exists(impl)) result.source = new String(Files.readAllBytes(impl), StandardCharsets.UTF_8);
+        return result;
+    }
+}